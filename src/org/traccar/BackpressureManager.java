@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.ServerChannel;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.socket.DatagramChannel;
+import org.traccar.helper.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BackpressureManager {
+
+    public static final String UDP_POLICY_DROP = "drop";
+    public static final String UDP_POLICY_PAUSE = "pause";
+    public static final String UDP_POLICY_ACCEPT = "accept";
+
+    private final int highWater;
+    private final int lowWater;
+    private final long journalHighWater;
+    private final long journalLowWater;
+    private final String udpPolicy;
+
+    // Last reported writer queue size and journal backlog in bytes
+    private volatile int queueSize;
+    private volatile long journalSize;
+
+    private volatile boolean paused;
+
+    private final AtomicLong pauseCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final BackpressureHandler handler = new BackpressureHandler();
+
+    public BackpressureManager(int highWater, int lowWater, String udpPolicy) {
+        this(highWater, lowWater, Long.MAX_VALUE, Long.MAX_VALUE, udpPolicy);
+    }
+
+    public BackpressureManager(
+            int highWater, int lowWater, long journalHighWater, long journalLowWater, String udpPolicy) {
+        this.highWater = highWater;
+        this.lowWater = lowWater;
+        this.journalHighWater = journalHighWater;
+        this.journalLowWater = journalLowWater;
+        this.udpPolicy = udpPolicy;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public long getPauseCount() {
+        return pauseCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public BackpressureHandler getHandler() {
+        return handler;
+    }
+
+    public void checkQueue(int queueSize) {
+        this.queueSize = queueSize;
+        check();
+    }
+
+    /**
+     * Journaled positions are acknowledged before they are stored, so replay backlog counts as well.
+     */
+    public void checkJournal(long journalSize) {
+        this.journalSize = journalSize;
+        check();
+    }
+
+    private void check() {
+        if (!paused && (queueSize >= highWater || journalSize >= journalHighWater)) {
+            setPaused(true);
+        } else if (paused && queueSize <= lowWater && journalSize <= journalLowWater) {
+            setPaused(false);
+        }
+    }
+
+    private synchronized void setPaused(boolean paused) {
+        if (this.paused == paused) {
+            return;
+        }
+        this.paused = paused;
+        if (paused) {
+            pauseCount.incrementAndGet();
+            Log.warning("Pausing device channels, pending positions: " + queueSize
+                    + ", journal backlog: " + journalSize);
+        } else {
+            Log.info("Resuming device channels, pending positions: " + queueSize
+                    + ", journal backlog: " + journalSize);
+        }
+        if (Context.getServerManager() != null) {
+            for (TrackerServer server : Context.getServerManager().getServers()) {
+                for (Channel channel : server.getChannelGroup()) {
+                    updateReadable(channel);
+                }
+            }
+        }
+    }
+
+    private void updateReadable(Channel channel) {
+        if (channel instanceof ServerChannel || !channel.isOpen()) {
+            return;
+        }
+        if (channel instanceof DatagramChannel && !udpPolicy.equals(UDP_POLICY_PAUSE)) {
+            return;
+        }
+        channel.setReadable(!paused);
+    }
+
+    public final class BackpressureHandler extends SimpleChannelUpstreamHandler {
+
+        private BackpressureHandler() {
+        }
+
+        @Override
+        public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            if (paused) {
+                updateReadable(e.getChannel());
+            }
+            super.channelConnected(ctx, e);
+        }
+
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+            if (paused && e.getChannel() instanceof DatagramChannel && udpPolicy.equals(UDP_POLICY_DROP)) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            super.messageReceived(ctx, e);
+        }
+
+    }
+
+}
@@ -32,6 +32,10 @@ public abstract class BaseEventHandler extends BaseDataHandler {
         return position;
     }
 
-    protected abstract Map<Event, Position> analyzePosition(Position position);
+    public Map<Event, Position> analyzePosition(Position position) {
+        return analyzePosition(new EventContext(position));
+    }
+
+    protected abstract Map<Event, Position> analyzePosition(EventContext context);
 
 }
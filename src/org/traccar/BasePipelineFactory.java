@@ -48,6 +48,7 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
 
     private final TrackerServer server;
     private int timeout;
+    private boolean executorEnabled;
 
     private FilterHandler filterHandler;
     private DistanceHandler distanceHandler;
@@ -58,6 +59,7 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
     private HemisphereHandler hemisphereHandler;
     private CopyAttributesHandler copyAttributesHandler;
     private ComputedAttributesHandler computedAttributesHandler;
+    private CoreHandler coreHandler;
 
     private CommandResultEventHandler commandResultEventHandler;
     private OverspeedEventHandler overspeedEventHandler;
@@ -68,6 +70,10 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
     private IgnitionEventHandler ignitionEventHandler;
     private MaintenanceEventHandler maintenanceEventHandler;
     private DriverEventHandler driverEventHandler;
+    private CombinedEventHandler combinedEventHandler;
+
+    private String forwardUrl;
+    private String[] extraHandlers;
 
     private static final class OpenChannelHandler extends SimpleChannelHandler {
 
@@ -120,6 +126,13 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
     public BasePipelineFactory(TrackerServer server, String protocol) {
         this.server = server;
 
+        if (Context.getConfig().getBoolean("forward.enable")) {
+            forwardUrl = Context.getConfig().getString("forward.url");
+        }
+        if (Context.getConfig().hasKey("extra.handlers")) {
+            extraHandlers = Context.getConfig().getString("extra.handlers").split(",");
+        }
+
         timeout = Context.getConfig().getInteger(protocol + ".timeout");
         if (timeout == 0) {
             timeout = Context.getConfig().getInteger(protocol + ".resetDelay"); // temporary
@@ -128,6 +141,8 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
             }
         }
 
+        executorEnabled = Context.getConfig().getBoolean("server.executor.enable");
+
         distanceHandler = new DistanceHandler(
                 Context.getConfig().getBoolean("coordinates.filter"),
                 Context.getConfig().getInteger("coordinates.minError"),
@@ -168,6 +183,12 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
             computedAttributesHandler = new ComputedAttributesHandler();
         }
 
+        // Extra handlers are placed between core steps, so they require separate handlers
+        if (Context.getConfig().getBoolean("processing.fusedCore.enable") && extraHandlers == null) {
+            coreHandler = new CoreHandler(
+                    hemisphereHandler, distanceHandler, filterHandler, motionHandler, copyAttributesHandler);
+        }
+
         if (Context.getConfig().getBoolean("event.enable")) {
             commandResultEventHandler = new CommandResultEventHandler();
             overspeedEventHandler = Context.getOverspeedEventHandler();
@@ -178,6 +199,20 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
             ignitionEventHandler = new IgnitionEventHandler();
             maintenanceEventHandler = new MaintenanceEventHandler();
             driverEventHandler = new DriverEventHandler();
+
+            // Single pass over all handlers with a shared context, replaces separate pipeline entries
+            if (Context.getConfig().getBoolean("event.combined.enable")) {
+                combinedEventHandler = new CombinedEventHandler();
+                combinedEventHandler.addEventHandler(commandResultEventHandler);
+                combinedEventHandler.addEventHandler(overspeedEventHandler);
+                combinedEventHandler.addEventHandler(fuelDropEventHandler);
+                combinedEventHandler.addEventHandler(motionEventHandler);
+                combinedEventHandler.addEventHandler(geofenceEventHandler);
+                combinedEventHandler.addEventHandler(alertEventHandler);
+                combinedEventHandler.addEventHandler(ignitionEventHandler);
+                combinedEventHandler.addEventHandler(maintenanceEventHandler);
+                combinedEventHandler.addEventHandler(driverEventHandler);
+            }
         }
     }
 
@@ -190,43 +225,26 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
             pipeline.addLast("idleHandler", new IdleStateHandler(GlobalTimer.getTimer(), timeout, 0, 0));
         }
         pipeline.addLast("openHandler", new OpenChannelHandler(server));
+        if (Context.getBackpressureManager() != null) {
+            pipeline.addLast("backpressure", Context.getBackpressureManager().getHandler());
+        }
         if (Context.isLoggerEnabled()) {
             pipeline.addLast("logger", new StandardLoggingHandler());
         }
 
         addSpecificHandlers(pipeline);
 
-        if (geolocationHandler != null) {
-            pipeline.addLast("location", geolocationHandler);
-        }
-        if (hemisphereHandler != null) {
-            pipeline.addLast("hemisphere", hemisphereHandler);
-        }
-
-        if (distanceHandler != null) {
-            pipeline.addLast("distance", distanceHandler);
-        }
-
-        if (remoteAddressHandler != null) {
-            pipeline.addLast("remoteAddress", remoteAddressHandler);
-        }
-
-        addDynamicHandlers(pipeline);
-
-        if (filterHandler != null) {
-            pipeline.addLast("filter", filterHandler);
-        }
-
-        if (geocoderHandler != null) {
-            pipeline.addLast("geocoder", geocoderHandler);
+        if (executorEnabled) {
+            pipeline.addLast("executionHandler", GlobalExecutor.getExecutionHandler());
         }
 
-        if (motionHandler != null) {
-            pipeline.addLast("motion", motionHandler);
+        if (geolocationHandler != null) {
+            pipeline.addLast("location", geolocationHandler);
         }
-
-        if (copyAttributesHandler != null) {
-            pipeline.addLast("copyAttributes", copyAttributesHandler);
+        if (coreHandler != null) {
+            addFusedHandlers(pipeline);
+        } else {
+            addSeparateHandlers(pipeline);
         }
 
         if (computedAttributesHandler != null) {
@@ -237,10 +255,21 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
             pipeline.addLast("dataHandler", new DefaultDataHandler());
         }
 
-        if (Context.getConfig().getBoolean("forward.enable")) {
-            pipeline.addLast("webHandler", new WebDataHandler(Context.getConfig().getString("forward.url")));
+        if (forwardUrl != null) {
+            pipeline.addLast("webHandler", new WebDataHandler(forwardUrl));
         }
 
+        if (combinedEventHandler != null) {
+            pipeline.addLast("eventHandler", combinedEventHandler);
+        } else {
+            addEventHandlers(pipeline);
+        }
+
+        pipeline.addLast("mainHandler", new MainEventHandler());
+        return pipeline;
+    }
+
+    private void addEventHandlers(ChannelPipeline pipeline) {
         if (commandResultEventHandler != null) {
             pipeline.addLast("CommandResultEventHandler", commandResultEventHandler);
         }
@@ -276,17 +305,58 @@ public abstract class BasePipelineFactory implements ChannelPipelineFactory {
         if (driverEventHandler != null) {
             pipeline.addLast("DriverEventHandler", driverEventHandler);
         }
+    }
 
-        pipeline.addLast("mainHandler", new MainEventHandler());
-        return pipeline;
+    private void addSeparateHandlers(ChannelPipeline pipeline) {
+        if (hemisphereHandler != null) {
+            pipeline.addLast("hemisphere", hemisphereHandler);
+        }
+
+        if (distanceHandler != null) {
+            pipeline.addLast("distance", distanceHandler);
+        }
+
+        if (remoteAddressHandler != null) {
+            pipeline.addLast("remoteAddress", remoteAddressHandler);
+        }
+
+        addDynamicHandlers(pipeline);
+
+        if (filterHandler != null) {
+            pipeline.addLast("filter", filterHandler);
+        }
+
+        if (geocoderHandler != null) {
+            pipeline.addLast("geocoder", geocoderHandler);
+        }
+
+        if (motionHandler != null) {
+            pipeline.addLast("motion", motionHandler);
+        }
+
+        if (copyAttributesHandler != null) {
+            pipeline.addLast("copyAttributes", copyAttributesHandler);
+        }
+    }
+
+    private void addFusedHandlers(ChannelPipeline pipeline) {
+        if (remoteAddressHandler != null) {
+            pipeline.addLast("remoteAddress", remoteAddressHandler);
+        }
+
+        pipeline.addLast("core", coreHandler);
+
+        if (geocoderHandler != null) {
+            pipeline.addLast("geocoder", geocoderHandler);
+        }
     }
 
     private void addDynamicHandlers(ChannelPipeline pipeline) {
-        if (Context.getConfig().hasKey("extra.handlers")) {
-            String[] handlers = Context.getConfig().getString("extra.handlers").split(",");
-            for (int i = 0; i < handlers.length; i++) {
+        if (extraHandlers != null) {
+            for (int i = 0; i < extraHandlers.length; i++) {
                 try {
-                    pipeline.addLast("extraHandler." + i, (ChannelHandler) Class.forName(handlers[i]).newInstance());
+                    pipeline.addLast(
+                            "extraHandler." + i, (ChannelHandler) Class.forName(extraHandlers[i]).newInstance());
                 } catch (ClassNotFoundException | InstantiationException | IllegalAccessException error) {
                     Log.warning(error);
                 }
@@ -34,6 +34,10 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
 
     private final Protocol protocol;
 
+    private final boolean registerUnknown;
+    private final boolean ignoreSessionCache;
+    private final boolean saveEmpty;
+
     public long addUnknownDevice(String uniqueId) {
         Device device = new Device();
         device.setName(uniqueId);
@@ -86,7 +90,7 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
                 Log.warning(e);
             }
             if (deviceId == 0) {
-                if (Context.getConfig().getBoolean("database.registerUnknown")) {
+                if (registerUnknown) {
                     return addUnknownDevice(uniqueIds[0]);
                 }
 
@@ -105,7 +109,7 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
 
     public DeviceSession getDeviceSession(Channel channel, SocketAddress remoteAddress, String... uniqueIds) {
         if (channel != null && channel.getPipeline().get(HttpRequestDecoder.class) != null
-                || Context.getConfig().getBoolean("decoder.ignoreSessionCache")) {
+                || ignoreSessionCache) {
             long deviceId = findDeviceId(remoteAddress, uniqueIds);
             if (deviceId != 0) {
                 if (Context.getConnectionManager() != null) {
@@ -147,6 +151,9 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
 
     public BaseProtocolDecoder(Protocol protocol) {
         this.protocol = protocol;
+        registerUnknown = Context.getConfig().getBoolean("database.registerUnknown");
+        ignoreSessionCache = Context.getConfig().getBoolean("decoder.ignoreSessionCache");
+        saveEmpty = Context.getConfig().getBoolean("database.saveEmpty");
     }
 
     public void getLastLocation(Position position, Date deviceTime) {
@@ -207,7 +214,7 @@ public abstract class BaseProtocolDecoder extends ExtendedObjectDecoder {
     @Override
     protected Object handleEmptyMessage(Channel channel, SocketAddress remoteAddress, Object msg) {
         DeviceSession deviceSession = getDeviceSession(channel, remoteAddress);
-        if (Context.getConfig().getBoolean("database.saveEmpty") && deviceSession != null) {
+        if (saveEmpty && deviceSession != null) {
             Position position = new Position();
             position.setProtocol(getProtocolName());
             position.setDeviceId(deviceSession.getDeviceId());
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.traccar.model.Event;
+import org.traccar.model.Position;
+
+/**
+ * Runs all event handlers against one shared context and reports their events together.
+ */
+public class CombinedEventHandler extends BaseDataHandler {
+
+    private final List<BaseEventHandler> eventHandlers = new ArrayList<>();
+
+    public void addEventHandler(BaseEventHandler eventHandler) {
+        if (eventHandler != null) {
+            eventHandlers.add(eventHandler);
+        }
+    }
+
+    public Map<Event, Position> analyzePosition(Position position) {
+        EventContext context = new EventContext(position);
+        Map<Event, Position> result = null;
+        for (BaseEventHandler eventHandler : eventHandlers) {
+            Map<Event, Position> events = eventHandler.analyzePosition(context);
+            if (events != null && !events.isEmpty()) {
+                if (result == null) {
+                    result = new LinkedHashMap<>();
+                }
+                result.putAll(events);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected Position handlePosition(Position position) {
+        Map<Event, Position> events = analyzePosition(position);
+        if (events != null && Context.getNotificationManager() != null) {
+            Context.getNotificationManager().updateEvents(events);
+        }
+        return position;
+    }
+
+}
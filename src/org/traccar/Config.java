@@ -18,13 +18,32 @@ package org.traccar;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Config {
 
+    private static final class Value {
+
+        private final boolean present;
+        private final String value;
+
+        Value(boolean present, String value) {
+            this.present = present;
+            this.value = value;
+        }
+
+    }
+
     private final Properties properties = new Properties();
 
     private boolean useEnvironmentVariables;
+    private Map<String, String> environment = Collections.emptyMap();
+
+    // Resolved values with environment overrides applied, so name conversion runs once per key
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
 
     void load(String file) throws IOException {
         Properties mainProperties = new Properties();
@@ -43,21 +62,42 @@ public class Config {
 
         useEnvironmentVariables = Boolean.parseBoolean(System.getenv("CONFIG_USE_ENVIRONMENT_VARIABLES"))
                 || Boolean.parseBoolean(properties.getProperty("config.useEnvironmentVariables"));
+        if (useEnvironmentVariables) {
+            environment = System.getenv();
+        }
+        values.clear();
     }
 
-    public boolean hasKey(String key) {
-        return useEnvironmentVariables && System.getenv().containsKey(getEnvironmentVariableName(key))
-                || properties.containsKey(key);
+    private Value resolve(String key) {
+        Value result = values.get(key);
+        return result != null ? result : resolveMissing(key);
     }
 
-    public String getString(String key) {
-        if (useEnvironmentVariables) {
-            String value = System.getenv(getEnvironmentVariableName(key));
-            if (value != null && !value.isEmpty()) {
-                return value;
+    private synchronized Value resolveMissing(String key) {
+        Value result = values.get(key);
+        if (result == null) {
+            boolean present = properties.containsKey(key);
+            String value = properties.getProperty(key);
+            if (useEnvironmentVariables) {
+                String environmentName = getEnvironmentVariableName(key);
+                present |= environment.containsKey(environmentName);
+                String environmentValue = environment.get(environmentName);
+                if (environmentValue != null && !environmentValue.isEmpty()) {
+                    value = environmentValue;
+                }
             }
+            result = new Value(present, value);
+            values.put(key, result);
         }
-        return properties.getProperty(key);
+        return result;
+    }
+
+    public boolean hasKey(String key) {
+        return resolve(key).present;
+    }
+
+    public String getString(String key) {
+        return resolve(key).value;
     }
 
     public String getString(String key, String defaultValue) {
@@ -96,8 +136,9 @@ public class Config {
         return key.replaceAll("\\.", "_").replaceAll("(\\p{Lu})", "_$1").toUpperCase();
     }
 
-    public void setString(String key, String value) {
+    public synchronized void setString(String key, String value) {
         properties.put(key, value);
+        values.remove(key);
     }
 
 }
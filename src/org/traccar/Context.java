@@ -19,6 +19,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.ning.http.client.AsyncHttpClient;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Properties;
@@ -32,11 +34,15 @@ import org.traccar.database.BaseObjectManager;
 import org.traccar.database.ConnectionManager;
 import org.traccar.database.DataManager;
 import org.traccar.database.DeviceManager;
+import org.traccar.database.DeviceUpdater;
 import org.traccar.database.DriversManager;
 import org.traccar.database.IdentityManager;
+import org.traccar.database.JournalReplayer;
 import org.traccar.database.MediaManager;
 import org.traccar.database.NotificationManager;
 import org.traccar.database.PermissionsManager;
+import org.traccar.database.PositionJournal;
+import org.traccar.database.PositionWriter;
 import org.traccar.database.GeofenceManager;
 import org.traccar.database.GroupsManager;
 import org.traccar.database.StatisticsManager;
@@ -52,6 +58,7 @@ import org.traccar.geocoder.MapQuestGeocoder;
 import org.traccar.geocoder.NominatimGeocoder;
 import org.traccar.geocoder.OpenCageGeocoder;
 import org.traccar.geocoder.Geocoder;
+import org.traccar.geocoder.GeocoderCache;
 import org.traccar.geolocation.UnwiredGeolocationProvider;
 import org.traccar.helper.Log;
 import org.traccar.model.Attribute;
@@ -106,6 +113,30 @@ public final class Context {
         return dataManager;
     }
 
+    private static PositionWriter positionWriter;
+
+    public static PositionWriter getPositionWriter() {
+        return positionWriter;
+    }
+
+    private static DeviceUpdater deviceUpdater;
+
+    public static DeviceUpdater getDeviceUpdater() {
+        return deviceUpdater;
+    }
+
+    private static BackpressureManager backpressureManager;
+
+    public static BackpressureManager getBackpressureManager() {
+        return backpressureManager;
+    }
+
+    private static JournalReplayer journalReplayer;
+
+    public static JournalReplayer getJournalReplayer() {
+        return journalReplayer;
+    }
+
     private static MediaManager mediaManager;
 
     public static MediaManager getMediaManager() {
@@ -259,6 +290,108 @@ public final class Context {
                 config.getBoolean("report.trip.useIgnition"));
     }
 
+    private static void initGeocoder() {
+        String type = config.getString("geocoder.type", "google");
+        String url = config.getString("geocoder.url");
+        String key = config.getString("geocoder.key");
+        String language = config.getString("geocoder.language");
+
+        switch (type) {
+            case "nominatim":
+                geocoder = new NominatimGeocoder(url, key, language);
+                break;
+            case "gisgraphy":
+                geocoder = new GisgraphyGeocoder(url);
+                break;
+            case "mapquest":
+                geocoder = new MapQuestGeocoder(url, key);
+                break;
+            case "opencage":
+                geocoder = new OpenCageGeocoder(url, key);
+                break;
+            case "bingmaps":
+                geocoder = new BingMapsGeocoder(url, key);
+                break;
+            case "factual":
+                geocoder = new FactualGeocoder(url, key);
+                break;
+            case "geocodefarm":
+                geocoder = new GeocodeFarmGeocoder(key, language);
+                break;
+            default:
+                geocoder = new GoogleGeocoder(key, language);
+                break;
+        }
+
+        int cacheSize = config.getInteger("geocoder.cacheSize");
+        if (cacheSize > 0) {
+            geocoder = new GeocoderCache(geocoder, cacheSize, config.getInteger("geocoder.cachePrecision", 4));
+        }
+    }
+
+    private static void initGeolocationModule() {
+        String type = config.getString("geolocation.type", "mozilla");
+        String url = config.getString("geolocation.url");
+        String key = config.getString("geolocation.key");
+
+        switch (type) {
+            case "google":
+                geolocationProvider = new GoogleGeolocationProvider(key);
+                break;
+            case "opencellid":
+                geolocationProvider = new OpenCellIdGeolocationProvider(key);
+                break;
+            case "unwired":
+                geolocationProvider = new UnwiredGeolocationProvider(url, key);
+                break;
+            default:
+                geolocationProvider = new MozillaGeolocationProvider(key);
+                break;
+        }
+    }
+
+    private static void initStorageModules() throws IOException {
+        if (config.getBoolean("database.writer.enable")) {
+            positionWriter = new PositionWriter(dataManager,
+                    config.getInteger("database.writer.threads", Runtime.getRuntime().availableProcessors()),
+                    config.getInteger("database.writer.batchSize", 100),
+                    config.getLong("database.writer.flushDelay", 100),
+                    config.getInteger("database.writer.queueSize", 100000));
+        }
+
+        if (config.getBoolean("database.updater.enable")) {
+            deviceUpdater = new DeviceUpdater(dataManager, config.getLong("database.updater.delay", 1000));
+        }
+
+        if (config.getBoolean("database.journal.enable")) {
+            PositionJournal positionJournal = new PositionJournal(
+                    new File(config.getString("database.journal.path", "./data/journal")),
+                    config.getInteger("database.journal.segmentSize", 64 * 1024 * 1024),
+                    config.getString("database.journal.fsync", PositionJournal.FSYNC_INTERVAL),
+                    config.getLong("database.journal.fsyncInterval", 1000),
+                    config.getInteger("database.journal.maxSegments", 32));
+            journalReplayer = new JournalReplayer(dataManager, positionJournal,
+                    config.getInteger("database.writer.batchSize", 100),
+                    config.getLong("database.writer.flushDelay", 100));
+        }
+
+        boolean journal = config.getBoolean("database.journal.enable");
+        if (config.getBoolean("server.backpressure.enable") && (positionWriter != null || journal)) {
+            int queueSize = config.getInteger("database.writer.queueSize", 100000);
+            // Segments beyond the retention limit are dropped, so pause well before that
+            long journalSize = config.getLong("database.journal.segmentSize", 64 * 1024 * 1024)
+                    * config.getInteger("database.journal.maxSegments", 32);
+            backpressureManager = new BackpressureManager(
+                    config.getInteger("server.backpressure.highWater", queueSize * 8 / 10),
+                    config.getInteger("server.backpressure.lowWater", queueSize / 2),
+                    journal ? config.getLong("server.backpressure.journalHighWater", journalSize / 2)
+                            : Long.MAX_VALUE,
+                    journal ? config.getLong("server.backpressure.journalLowWater", journalSize / 4)
+                            : Long.MAX_VALUE,
+                    config.getString("server.backpressure.udpPolicy", BackpressureManager.UDP_POLICY_DROP));
+        }
+    }
+
     public static void init(String[] arguments) throws Exception {
 
         config = new Config();
@@ -281,6 +414,10 @@ public final class Context {
             dataManager = new DataManager(config);
         }
 
+        if (dataManager != null) {
+            initStorageModules();
+        }
+
         if (config.hasKey("media.path")) {
             mediaManager = new MediaManager(config);
         }
@@ -294,59 +431,11 @@ public final class Context {
         identityManager = deviceManager;
 
         if (config.getBoolean("geocoder.enable")) {
-            String type = config.getString("geocoder.type", "google");
-            String url = config.getString("geocoder.url");
-            String key = config.getString("geocoder.key");
-            String language = config.getString("geocoder.language");
-
-            int cacheSize = config.getInteger("geocoder.cacheSize");
-            switch (type) {
-                case "nominatim":
-                    geocoder = new NominatimGeocoder(url, key, language, cacheSize);
-                    break;
-                case "gisgraphy":
-                    geocoder = new GisgraphyGeocoder(url, cacheSize);
-                    break;
-                case "mapquest":
-                    geocoder = new MapQuestGeocoder(url, key, cacheSize);
-                    break;
-                case "opencage":
-                    geocoder = new OpenCageGeocoder(url, key, cacheSize);
-                    break;
-                case "bingmaps":
-                    geocoder = new BingMapsGeocoder(url, key, cacheSize);
-                    break;
-                case "factual":
-                    geocoder = new FactualGeocoder(url, key, cacheSize);
-                    break;
-                case "geocodefarm":
-                    geocoder = new GeocodeFarmGeocoder(key, language, cacheSize);
-                    break;
-                default:
-                    geocoder = new GoogleGeocoder(key, language, cacheSize);
-                    break;
-            }
+            initGeocoder();
         }
 
         if (config.getBoolean("geolocation.enable")) {
-            String type = config.getString("geolocation.type", "mozilla");
-            String url = config.getString("geolocation.url");
-            String key = config.getString("geolocation.key");
-
-            switch (type) {
-                case "google":
-                    geolocationProvider = new GoogleGeolocationProvider(key);
-                    break;
-                case "opencellid":
-                    geolocationProvider = new OpenCellIdGeolocationProvider(key);
-                    break;
-                case "unwired":
-                    geolocationProvider = new UnwiredGeolocationProvider(url, key);
-                    break;
-                default:
-                    geolocationProvider = new MozillaGeolocationProvider(key);
-                    break;
-            }
+            initGeolocationModule();
         }
 
         if (config.getBoolean("web.enable")) {
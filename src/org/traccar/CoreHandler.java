@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import org.traccar.model.Position;
+import org.traccar.processing.CopyAttributesHandler;
+
+/**
+ * Runs hemisphere, distance, filter, motion and copy attributes steps in one pass, sharing last position lookup.
+ */
+public class CoreHandler extends BaseDataHandler {
+
+    private final HemisphereHandler hemisphereHandler;
+    private final DistanceHandler distanceHandler;
+    private final FilterHandler filterHandler;
+    private final MotionHandler motionHandler;
+    private final CopyAttributesHandler copyAttributesHandler;
+
+    public CoreHandler(
+            HemisphereHandler hemisphereHandler, DistanceHandler distanceHandler, FilterHandler filterHandler,
+            MotionHandler motionHandler, CopyAttributesHandler copyAttributesHandler) {
+        this.hemisphereHandler = hemisphereHandler;
+        this.distanceHandler = distanceHandler;
+        this.filterHandler = filterHandler;
+        this.motionHandler = motionHandler;
+        this.copyAttributesHandler = copyAttributesHandler;
+    }
+
+    protected Position getLastPosition(long deviceId) {
+        if (Context.getIdentityManager() != null) {
+            return Context.getIdentityManager().getLastPosition(deviceId);
+        }
+        return null;
+    }
+
+    @Override
+    protected Position handlePosition(Position position) {
+
+        Position last = getLastPosition(position.getDeviceId());
+
+        if (hemisphereHandler != null) {
+            hemisphereHandler.adjustHemisphere(position);
+        }
+        if (distanceHandler != null) {
+            distanceHandler.calculateDistance(position, last);
+        }
+        if (filterHandler != null && filterHandler.filter(position, last)) {
+            return null;
+        }
+        if (motionHandler != null) {
+            motionHandler.updateMotion(position);
+        }
+        if (copyAttributesHandler != null) {
+            copyAttributesHandler.copyAttributes(position, last);
+        }
+        return position;
+    }
+
+}
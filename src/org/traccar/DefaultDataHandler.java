@@ -15,6 +15,8 @@
  */
 package org.traccar;
 
+import org.traccar.database.JournalReplayer;
+import org.traccar.database.PositionWriter;
 import org.traccar.helper.Log;
 import org.traccar.model.Position;
 
@@ -23,8 +25,22 @@ public class DefaultDataHandler extends BaseDataHandler {
     @Override
     protected Position handlePosition(Position position) {
 
+        JournalReplayer journalReplayer = Context.getJournalReplayer();
+        if (journalReplayer != null && journalReplayer.write(position)) {
+            return position;
+        }
+
+        PositionWriter positionWriter = Context.getPositionWriter();
+        if (positionWriter != null && positionWriter.write(position)) {
+            return position;
+        }
+
         try {
             Context.getDataManager().addPosition(position);
+            if ((journalReplayer != null || positionWriter != null) && Context.getDeviceManager() != null) {
+                // Pipeline leaves the latest position pointer to deferred storage
+                Context.getDeviceManager().updateStoredPosition(position);
+            }
         } catch (Exception error) {
             Log.warning(error);
         }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.handler.execution.ChannelEventRunnable;
+import org.jboss.netty.handler.execution.OrderedMemoryAwareThreadPoolExecutor;
+import org.traccar.model.Position;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Positions are ordered per device, so a device that reconnects or shares a connectionless channel keeps its order.
+ * Channel state events, errors and non-position messages keep the default per-channel order and are not ordered
+ * relative to positions of that channel. Handlers after the executor only log and close the channel for those.
+ */
+public class DeviceOrderedExecutor extends OrderedMemoryAwareThreadPoolExecutor {
+
+    private final Map<Runnable, Long> queueTimes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, DeviceKey> deviceKeys = new ConcurrentHashMap<>();
+    private final Map<Runnable, DeviceKey> deviceTasks = new ConcurrentHashMap<>();
+
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    public DeviceOrderedExecutor(int corePoolSize, long maxChannelMemorySize, long maxTotalMemorySize) {
+        super(corePoolSize, maxChannelMemorySize, maxTotalMemorySize);
+    }
+
+    private static final class DeviceKey {
+
+        private final long deviceId;
+        private int pending;
+        private boolean removed;
+
+        private DeviceKey(long deviceId) {
+            this.deviceId = deviceId;
+        }
+
+    }
+
+    private static Position getPosition(ChannelEvent e) {
+        if (e instanceof MessageEvent && ((MessageEvent) e).getMessage() instanceof Position) {
+            return (Position) ((MessageEvent) e).getMessage();
+        }
+        return null;
+    }
+
+    @Override
+    protected ConcurrentMap<Object, Executor> newChildExecutorMap() {
+        // Device keys are released explicitly once idle, channel keys on channel close
+        return new ConcurrentHashMap<>();
+    }
+
+    @Override
+    protected Object getChildExecutorKey(ChannelEvent e) {
+        Position position = getPosition(e);
+        if (position != null) {
+            DeviceKey key = deviceKeys.get(position.getDeviceId());
+            if (key != null) {
+                return key;
+            }
+        }
+        return super.getChildExecutorKey(e);
+    }
+
+    @Override
+    protected void doExecute(Runnable task) {
+        queueTimes.put(task, System.nanoTime());
+        Position position = null;
+        if (task instanceof ChannelEventRunnable) {
+            position = getPosition(((ChannelEventRunnable) task).getEvent());
+        }
+        if (position == null) {
+            super.doExecute(task);
+            return;
+        }
+        while (true) {
+            DeviceKey key = deviceKeys.get(position.getDeviceId());
+            if (key == null) {
+                key = new DeviceKey(position.getDeviceId());
+                DeviceKey existing = deviceKeys.putIfAbsent(position.getDeviceId(), key);
+                if (existing != null) {
+                    key = existing;
+                }
+            }
+            synchronized (key) {
+                if (!key.removed) {
+                    key.pending += 1;
+                    deviceTasks.put(task, key);
+                    super.doExecute(task);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        DeviceKey key = deviceTasks.remove(r);
+        if (key != null) {
+            synchronized (key) {
+                key.pending -= 1;
+                if (key.pending == 0) {
+                    // Queue of the device is empty, so the next task can safely start a new child executor
+                    key.removed = true;
+                    deviceKeys.remove(key.deviceId, key);
+                    removeChildExecutor(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        Long queueTime = queueTimes.remove(r);
+        if (queueTime != null) {
+            long latency = System.nanoTime() - queueTime;
+            executedCount.incrementAndGet();
+            totalLatency.addAndGet(latency);
+            long max = maxLatency.get();
+            while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+                max = maxLatency.get();
+            }
+        }
+    }
+
+    public int getQueueCount() {
+        return getChildExecutorKeySet().size();
+    }
+
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    public long getAverageLatency() {
+        long count = executedCount.get();
+        return count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalLatency.get() / count) : 0;
+    }
+
+    public long getMaxLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatency.get());
+    }
+
+}
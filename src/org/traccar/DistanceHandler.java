@@ -34,15 +34,38 @@ public class DistanceHandler extends BaseDataHandler {
         this.coordinatesMaxError = coordinatesMaxError;
     }
 
-    private Position getLastPosition(long deviceId) {
+    protected Position getLastPosition(long deviceId) {
         if (Context.getIdentityManager() != null) {
             return Context.getIdentityManager().getLastPosition(deviceId);
         }
         return null;
     }
 
+    /**
+     * Same result as rounding through BigDecimal to two decimal places, which is only used near ties.
+     */
+    static double round(double value) {
+        if (value == 0) {
+            return 0.0;
+        }
+        double scaled = value * 100;
+        if (Math.abs(scaled) < 1L << 52) {
+            double floor = Math.floor(scaled);
+            double fraction = scaled - floor;
+            if (Math.abs(fraction - 0.5) > Math.ulp(scaled) * 8) {
+                return (fraction > 0.5 ? floor + 1 : floor) / 100;
+            }
+        }
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_EVEN).doubleValue();
+    }
+
     @Override
     protected Position handlePosition(Position position) {
+        calculateDistance(position, getLastPosition(position.getDeviceId()));
+        return position;
+    }
+
+    void calculateDistance(Position position, Position last) {
 
         double distance = 0.0;
         if (position.getAttributes().containsKey(Position.KEY_DISTANCE)) {
@@ -50,14 +73,13 @@ public class DistanceHandler extends BaseDataHandler {
         }
         double totalDistance = 0.0;
 
-        Position last = getLastPosition(position.getDeviceId());
         if (last != null) {
             totalDistance = last.getDouble(Position.KEY_TOTAL_DISTANCE);
             if (!position.getAttributes().containsKey(Position.KEY_DISTANCE)) {
                 distance = DistanceCalculator.distance(
                         position.getLatitude(), position.getLongitude(),
                         last.getLatitude(), last.getLongitude());
-                distance = BigDecimal.valueOf(distance).setScale(2, RoundingMode.HALF_EVEN).doubleValue();
+                distance = round(distance);
             }
             if (filter && last.getValid() && last.getLatitude() != 0 && last.getLongitude() != 0) {
                 boolean satisfiesMin = coordinatesMinError == 0 || distance > coordinatesMinError;
@@ -71,10 +93,7 @@ public class DistanceHandler extends BaseDataHandler {
             }
         }
         position.set(Position.KEY_DISTANCE, distance);
-        totalDistance = BigDecimal.valueOf(totalDistance + distance).setScale(2, RoundingMode.HALF_EVEN).doubleValue();
-        position.set(Position.KEY_TOTAL_DISTANCE, totalDistance);
-
-        return position;
+        position.set(Position.KEY_TOTAL_DISTANCE, round(totalDistance + distance));
     }
 
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import org.traccar.model.Device;
+import org.traccar.model.DeviceState;
+import org.traccar.model.Position;
+
+/**
+ * Device data needed by event handlers, each value is looked up once on first use.
+ */
+public class EventContext {
+
+    private final Position position;
+
+    private boolean deviceResolved;
+    private Device device;
+
+    private Boolean latestPosition;
+
+    private boolean lastPositionResolved;
+    private Position lastPosition;
+
+    private DeviceState deviceState;
+
+    public EventContext(Position position) {
+        this.position = position;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public Device getDevice() {
+        if (!deviceResolved) {
+            device = Context.getIdentityManager().getById(position.getDeviceId());
+            deviceResolved = true;
+        }
+        return device;
+    }
+
+    public boolean isLatestPosition() {
+        if (latestPosition == null) {
+            latestPosition = Context.getIdentityManager().isLatestPosition(position);
+        }
+        return latestPosition;
+    }
+
+    public Position getLastPosition() {
+        if (!lastPositionResolved) {
+            lastPosition = Context.getIdentityManager().getLastPosition(position.getDeviceId());
+            lastPositionResolved = true;
+        }
+        return lastPosition;
+    }
+
+    public DeviceState getDeviceState() {
+        if (deviceState == null) {
+            deviceState = Context.getDeviceManager().getDeviceState(position.getDeviceId());
+        }
+        return deviceState;
+    }
+
+}
@@ -32,8 +32,10 @@ import java.util.Collection;
 
 public abstract class ExtendedObjectDecoder implements ChannelUpstreamHandler {
 
+    private final boolean saveOriginal = Context.getConfig().getBoolean("database.saveOriginal");
+
     private void saveOriginal(Object decodedMessage, Object originalMessage) {
-        if (Context.getConfig().getBoolean("database.saveOriginal") && decodedMessage instanceof Position) {
+        if (saveOriginal && decodedMessage instanceof Position) {
             Position position = (Position) decodedMessage;
             if (originalMessage instanceof ChannelBuffer) {
                 ChannelBuffer buf = (ChannelBuffer) originalMessage;
@@ -144,14 +144,16 @@ public class FilterHandler extends BaseDataHandler {
         }
     }
 
-    private boolean filter(Position position) {
-
-        StringBuilder filterType = new StringBuilder();
-
-        Position last = null;
+    protected Position getLastPosition(long deviceId) {
         if (Context.getIdentityManager() != null) {
-            last = Context.getIdentityManager().getLastPosition(position.getDeviceId());
+            return Context.getIdentityManager().getLastPosition(deviceId);
         }
+        return null;
+    }
+
+    boolean filter(Position position, Position last) {
+
+        StringBuilder filterType = new StringBuilder();
 
         if (filterInvalid(position)) {
             filterType.append("Invalid ");
@@ -197,7 +199,7 @@ public class FilterHandler extends BaseDataHandler {
 
     @Override
     protected Position handlePosition(Position position) {
-        if (filter(position)) {
+        if (filter(position, getLastPosition(position.getDeviceId()))) {
             return null;
         }
         return position;
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar;
+
+import org.jboss.netty.handler.execution.ExecutionHandler;
+import org.traccar.helper.Log;
+
+import java.util.concurrent.TimeUnit;
+
+public final class GlobalExecutor {
+
+    private static final long TERMINATION_TIMEOUT = 30;
+
+    private static DeviceOrderedExecutor executor = null;
+    private static ExecutionHandler executionHandler = null;
+
+    private GlobalExecutor() {
+    }
+
+    public static synchronized void release() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException error) {
+                Log.warning(error);
+            }
+        }
+        executor = null;
+        executionHandler = null;
+    }
+
+    public static synchronized DeviceOrderedExecutor getExecutor() {
+        if (executor == null) {
+            Config config = Context.getConfig();
+            executor = new DeviceOrderedExecutor(
+                    config.getInteger("server.executor.threads", Runtime.getRuntime().availableProcessors() * 2),
+                    config.getLong("server.executor.channelMemory", 1024 * 1024),
+                    config.getLong("server.executor.totalMemory", 64 * 1024 * 1024));
+        }
+        return executor;
+    }
+
+    public static synchronized ExecutionHandler getExecutionHandler() {
+        if (executionHandler == null) {
+            executionHandler = new ExecutionHandler(getExecutor());
+        }
+        return executionHandler;
+    }
+
+}
@@ -49,16 +49,19 @@ public class HemisphereHandler extends ExtendedObjectDecoder {
             Channel channel, SocketAddress remoteAddress, Object msg) throws Exception {
 
         if (msg instanceof Position) {
-            Position position = (Position) msg;
-            if (latitudeFactor != 0) {
-                position.setLatitude(Math.abs(position.getLatitude()) * latitudeFactor);
-            }
-            if (longitudeFactor != 0) {
-                position.setLongitude(Math.abs(position.getLongitude()) * longitudeFactor);
-            }
+            adjustHemisphere((Position) msg);
         }
 
         return msg;
     }
 
+    void adjustHemisphere(Position position) {
+        if (latitudeFactor != 0) {
+            position.setLatitude(Math.abs(position.getLatitude()) * latitudeFactor);
+        }
+        if (longitudeFactor != 0) {
+            position.setLongitude(Math.abs(position.getLongitude()) * longitudeFactor);
+        }
+    }
+
 }
@@ -60,6 +60,15 @@ public final class Main {
                     Context.getWebServer().stop();
                 }
                 Context.getServerManager().stop();
+                if (Context.getJournalReplayer() != null) {
+                    Context.getJournalReplayer().stop();
+                }
+                if (Context.getPositionWriter() != null) {
+                    Context.getPositionWriter().stop();
+                }
+                if (Context.getDeviceUpdater() != null) {
+                    Context.getDeviceUpdater().stop();
+                }
             }
         });
     }
@@ -28,10 +28,14 @@ public class MotionHandler extends BaseDataHandler {
 
     @Override
     protected Position handlePosition(Position position) {
+        updateMotion(position);
+        return position;
+    }
+
+    void updateMotion(Position position) {
         if (!position.getAttributes().containsKey(Position.KEY_MOTION)) {
             position.set(Position.KEY_MOTION, position.getSpeed() > speedThreshold);
         }
-        return position;
     }
 
 }
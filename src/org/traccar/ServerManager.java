@@ -72,6 +72,10 @@ public class ServerManager {
         }
     }
 
+    public List<TrackerServer> getServers() {
+        return serverList;
+    }
+
     public BaseProtocol getProtocol(String name) {
         return protocolList.get(name);
     }
@@ -88,6 +92,7 @@ public class ServerManager {
         }
 
         // Release resources
+        GlobalExecutor.release();
         GlobalChannelFactory.release();
         GlobalTimer.release();
     }
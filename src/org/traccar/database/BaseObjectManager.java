@@ -19,13 +19,16 @@ package org.traccar.database;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.traccar.helper.Log;
 import org.traccar.model.BaseModel;
+import org.traccar.model.Change;
 
 public class BaseObjectManager<T extends BaseModel> {
 
@@ -34,6 +37,12 @@ public class BaseObjectManager<T extends BaseModel> {
     private Map<Long, T> items;
     private Class<T> baseClass;
 
+    private static final long CHANGES_GRACE_PERIOD = 60 * 1000;
+
+    private long lastChangeId;
+    private final TreeMap<Long, Long> recentChanges = new TreeMap<>();
+    private long lastItemsRefresh;
+
     protected BaseObjectManager(DataManager dataManager, Class<T> baseClass) {
         this.dataManager = dataManager;
         this.baseClass = baseClass;
@@ -55,6 +64,8 @@ public class BaseObjectManager<T extends BaseModel> {
     public void refreshItems() {
         if (dataManager != null) {
             try {
+                lastItemsRefresh = System.currentTimeMillis();
+                long changeId = dataManager.getLastChangeId();
                 Collection<T> databaseItems = dataManager.getObjects(baseClass);
                 if (items == null) {
                     items = new ConcurrentHashMap<>(databaseItems.size());
@@ -73,10 +84,76 @@ public class BaseObjectManager<T extends BaseModel> {
                         removeCachedItem(cachedItemId);
                     }
                 }
+                synchronized (recentChanges) {
+                    lastChangeId = changeId;
+                    recentChanges.clear();
+                }
+            } catch (SQLException error) {
+                Log.warning(error);
+            }
+        }
+    }
+
+    /**
+     * Applies changes recorded by this or other server instances. Changes seen within the grace period are read
+     * again, so that a lower id committed after a higher one is not skipped. Only devices and groups are refreshed
+     * periodically, other managers see changes from other instances on their next full reload. Edits made directly in
+     * the database are not recorded, they are picked up by a full reload every database.fullRefreshDelay seconds.
+     */
+    public boolean refreshChanges() {
+        if (dataManager == null) {
+            return false;
+        }
+        if (!dataManager.isChangeTracking() || items == null
+                || System.currentTimeMillis() - lastItemsRefresh > dataManager.getFullRefreshDelay()) {
+            refreshItems();
+            return true;
+        }
+        boolean itemsChanged = false;
+        synchronized (recentChanges) {
+            try {
+                itemsChanged = applyChanges();
             } catch (SQLException error) {
                 Log.warning(error);
             }
         }
+        return itemsChanged;
+    }
+
+    private boolean applyChanges() throws SQLException {
+        long now = System.currentTimeMillis();
+        Set<Long> changedItemIds = new LinkedHashSet<>();
+        for (Change change : dataManager.getChanges(baseClass, lastChangeId)) {
+            if (!recentChanges.containsKey(change.getId())) {
+                recentChanges.put(change.getId(), now);
+                changedItemIds.add(change.getObjectId());
+            }
+        }
+
+        // Ids below a change seen long enough ago are considered final
+        for (Map.Entry<Long, Long> entry : recentChanges.entrySet()) {
+            if (now - entry.getValue() > CHANGES_GRACE_PERIOD) {
+                lastChangeId = Math.max(lastChangeId, entry.getKey());
+            }
+        }
+        recentChanges.headMap(lastChangeId, true).clear();
+
+        boolean itemsChanged = false;
+        for (long itemId : changedItemIds) {
+            T item = dataManager.getObject(baseClass, itemId);
+            if (item == null) {
+                if (items.containsKey(itemId)) {
+                    removeCachedItem(itemId);
+                    itemsChanged = true;
+                }
+            } else if (items.containsKey(itemId)) {
+                updateCachedItem(item);
+            } else {
+                addNewItem(item);
+                itemsChanged = true;
+            }
+        }
+        return itemsChanged;
     }
 
     protected void addNewItem(T item) {
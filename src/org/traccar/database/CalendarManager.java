@@ -16,12 +16,36 @@
  */
 package org.traccar.database;
 
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.traccar.helper.Log;
 import org.traccar.model.Calendar;
 
 public class CalendarManager extends SimpleObjectManager<Calendar> {
 
+    private static final long UPDATE_INTERVAL = 3600 * 1000L;
+
     public CalendarManager(DataManager dataManager) {
         super(dataManager, Calendar.class);
+
+        // Moves occurrence horizon forward so that lookups keep using precomputed intervals
+        Timer timer = new Timer("calendar-occurrences", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                long now = System.currentTimeMillis();
+                for (Calendar calendar : getItems(getAllItems())) {
+                    try {
+                        if (calendar != null) {
+                            calendar.updateOccurrences(now);
+                        }
+                    } catch (RuntimeException error) {
+                        Log.warning(error);
+                    }
+                }
+            }
+        }, UPDATE_INTERVAL, UPDATE_INTERVAL);
     }
 
 }
@@ -22,10 +22,12 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.naming.InitialContext;
@@ -51,6 +53,7 @@ import org.traccar.model.Group;
 import org.traccar.model.ManagedUser;
 import org.traccar.model.Permission;
 import org.traccar.model.BaseModel;
+import org.traccar.model.Change;
 import org.traccar.model.Calendar;
 import org.traccar.model.Position;
 import org.traccar.model.Server;
@@ -68,17 +71,59 @@ public class DataManager {
     public static final String ACTION_UPDATE = "update";
     public static final String ACTION_DELETE = "delete";
 
+    private static final Set<Class<?>> TRACKED_CLASSES = new HashSet<Class<?>>(Arrays.asList(
+            Device.class, Group.class, User.class, ManagedUser.class, Geofence.class,
+            Attribute.class, Driver.class, Calendar.class));
+
     private final Config config;
 
     private DataSource dataSource;
 
     private boolean generateQueries;
 
+    private IdAllocator positionIdAllocator;
+
+    private String insertPositionQuery;
+
+    private volatile boolean batchKeysSupported = true;
+
+    private String dialect;
+    private BulkInsertDialect bulkInsertDialect;
+
+    private boolean changeTracking;
+    private long fullRefreshDelay;
+
     public DataManager(Config config) throws Exception {
         this.config = config;
 
         initDatabase();
         initDatabaseSchema();
+
+        changeTracking = config.getBoolean("database.changeTracking")
+                && config.hasKey("database.selectChanges") && config.hasKey("database.selectLastChange");
+        fullRefreshDelay = config.getLong("database.fullRefreshDelay", 3600) * 1000;
+
+        if (isIdAllocatorEnabled()) {
+            positionIdAllocator = new IdAllocator(
+                    dataSource, "positions", config.getInteger("database.idAllocator.blockSize", 1000));
+            // Positions queued right after startup would otherwise wait for the background prefetch without ids
+            positionIdAllocator.reserveFirstBlock();
+            insertPositionQuery = config.getString("database.insertPositionWithId");
+            if (insertPositionQuery == null && generateQueries) {
+                insertPositionQuery = constructObjectQuery(ACTION_INSERT, Position.class, false, true);
+                if (dialect.toLowerCase().contains("sqlserver")) {
+                    // Identity insert is allowed for one table per session, so keep it on only for this statement
+                    insertPositionQuery = "SET IDENTITY_INSERT positions ON; "
+                            + insertPositionQuery + "; SET IDENTITY_INSERT positions OFF";
+                }
+            }
+        }
+    }
+
+    private boolean isIdAllocatorEnabled() {
+        // Queued positions continue down the pipeline before they are stored, so they need ids up front
+        return config.getBoolean("database.idAllocator.enable") || config.getBoolean("database.writer.enable")
+                || config.getBoolean("database.journal.enable");
     }
 
     public DataSource getDataSource() {
@@ -87,6 +132,10 @@ public class DataManager {
 
     private void initDatabase() throws Exception {
 
+        dialect = config.getString("database.dialect",
+                config.getString("database.driver", "") + " " + config.getString("database.url", ""));
+        bulkInsertDialect = createBulkInsertDialect(dialect);
+
         String jndiName = config.getString("database.jndi");
 
         if (jndiName != null) {
@@ -116,6 +165,8 @@ public class DataManager {
             hikariConfig.setConnectionInitSql(config.getString("database.checkConnection", "SELECT 1"));
             hikariConfig.setIdleTimeout(600000);
 
+            bulkInsertDialect.configure(hikariConfig);
+
             int maxPoolSize = config.getInteger("database.maxPoolSize");
 
             if (maxPoolSize != 0) {
@@ -129,7 +180,26 @@ public class DataManager {
         }
     }
 
+    public static BulkInsertDialect createBulkInsertDialect(String name) {
+        name = name.toLowerCase();
+        if (name.contains("postgresql")) {
+            return new PostgresCopyDialect();
+        } else if (name.contains("mysql")) {
+            return new MySqlBulkDialect();
+        } else {
+            return new JdbcBatchDialect();
+        }
+    }
+
+    public BulkInsertDialect getBulkInsertDialect() {
+        return bulkInsertDialect;
+    }
+
     public static String constructObjectQuery(String action, Class<?> clazz, boolean extended) {
+        return constructObjectQuery(action, clazz, extended, false);
+    }
+
+    public static String constructObjectQuery(String action, Class<?> clazz, boolean extended, boolean explicitId) {
         switch (action) {
             case ACTION_INSERT:
             case ACTION_UPDATE:
@@ -137,6 +207,11 @@ public class DataManager {
                 StringBuilder fields = new StringBuilder();
                 StringBuilder values = new StringBuilder();
 
+                if (explicitId && action.equals(ACTION_INSERT)) {
+                    fields.append("id, ");
+                    values.append(":id, ");
+                }
+
                 Set<Method> methods = new HashSet<>(Arrays.asList(clazz.getMethods()));
                 methods.removeAll(Arrays.asList(Object.class.getMethods()));
                 methods.removeAll(Arrays.asList(BaseModel.class.getMethods()));
@@ -306,12 +381,26 @@ public class DataManager {
         }
     }
 
+    public Device getDeviceByUniqueId(String uniqueId) throws SQLException {
+        return QueryBuilder.create(dataSource, getQuery("database.selectDeviceByUniqueId"))
+                .setString("uniqueId", uniqueId)
+                .executeQuerySingle(Device.class);
+    }
+
     public void updateDeviceStatus(Device device) throws SQLException {
         QueryBuilder.create(dataSource, getQuery(ACTION_UPDATE, Device.class, true))
                 .setObject(device)
                 .executeUpdate();
     }
 
+    public void updateDeviceStatuses(Collection<Device> devices) throws SQLException {
+        QueryBuilder builder = QueryBuilder.create(dataSource, getQuery(ACTION_UPDATE, Device.class, true));
+        for (Device device : devices) {
+            builder.setObject(device).addBatch();
+        }
+        builder.executeBatch();
+    }
+
     public Collection<Position> getPositions(long deviceId, Date from, Date to) throws SQLException {
         return QueryBuilder.create(dataSource, getQuery("database.selectPositions"))
                 .setLong("deviceId", deviceId)
@@ -320,11 +409,118 @@ public class DataManager {
                 .executeQuery(Position.class);
     }
 
+    public boolean hasPositionIdAllocator() {
+        return positionIdAllocator != null;
+    }
+
+    public void allocatePositionId(Position position) throws SQLException {
+        if (positionIdAllocator != null && position.getId() == 0) {
+            position.setId(positionIdAllocator.nextId());
+        }
+    }
+
+    public void tryAllocatePositionId(Position position) {
+        if (positionIdAllocator != null && position.getId() == 0) {
+            position.setId(positionIdAllocator.tryNextId());
+        }
+    }
+
+    public boolean hasPosition(long positionId) throws SQLException {
+        return QueryBuilder.create(dataSource, getQuery(ACTION_SELECT, Position.class))
+                .setLong("id", positionId)
+                .executeQuerySingle(Position.class) != null;
+    }
+
     public void addPosition(Position position) throws SQLException {
-        position.setId(QueryBuilder.create(dataSource, getQuery(ACTION_INSERT, Position.class), true)
-                .setObject(position)
-                .setDate("serverTime", new Date())
-                .executeUpdate());
+        // Journaled positions keep the time they were received
+        Date serverTime = position.getServerTime() != null ? position.getServerTime() : new Date();
+        if (positionIdAllocator != null) {
+            allocatePositionId(position);
+            QueryBuilder.create(dataSource, insertPositionQuery)
+                    .setObject(position)
+                    .setDate("serverTime", serverTime)
+                    .executeUpdate();
+        } else {
+            position.setId(QueryBuilder.create(dataSource, getQuery(ACTION_INSERT, Position.class), true)
+                    .setObject(position)
+                    .setDate("serverTime", serverTime)
+                    .executeUpdate());
+        }
+    }
+
+    public void addPositions(List<Position> positions) throws SQLException {
+        Date serverTime = new Date();
+        for (Position position : positions) {
+            allocatePositionId(position);
+            if (position.getServerTime() == null) {
+                position.setServerTime(serverTime);
+            }
+        }
+        if (positionIdAllocator != null) {
+            bulkInsertDialect.insert(dataSource, insertPositionQuery, positions, false);
+            return;
+        }
+        if (batchKeysSupported) {
+            long[] ids = bulkInsertDialect.insert(
+                    dataSource, getQuery(ACTION_INSERT, Position.class), positions, true);
+            if (ids.length == positions.size()) {
+                for (int i = 0; i < ids.length; i++) {
+                    positions.get(i).setId(ids[i]);
+                }
+                return;
+            }
+            disableBatchKeys();
+        }
+        for (Position position : positions) {
+            addPosition(position);
+        }
+    }
+
+    // Batch without a key for every row is rolled back, so rows are stored again one by one
+    private void disableBatchKeys() {
+        if (batchKeysSupported) {
+            batchKeysSupported = false;
+            Log.warning("Driver does not return generated keys for batches, storing rows one by one");
+        }
+    }
+
+    /**
+     * Stores positions one by one after a failed batch, skipping rows already stored with the same id. Returns
+     * positions the database rejected, or throws if it is not reachable.
+     */
+    public List<Position> addPositionsSeparately(List<Position> positions) throws SQLException {
+        List<Position> rejected = new ArrayList<>();
+        for (Position position : positions) {
+            if (position.getId() != 0 && hasPosition(position.getId())) {
+                continue;
+            }
+            try {
+                addPosition(position);
+            } catch (SQLException error) {
+                // Lookup also works as a probe, it throws if the database is not reachable
+                if (!hasPosition(position.getId())) {
+                    Log.warning(error);
+                    rejected.add(position);
+                }
+            }
+        }
+        return rejected;
+    }
+
+    public void addEvents(List<Event> events) throws SQLException {
+        if (batchKeysSupported) {
+            long[] ids = bulkInsertDialect.insert(dataSource, getQuery(ACTION_INSERT, Event.class), events, true);
+            if (ids.length == events.size()) {
+                for (int i = 0; i < ids.length; i++) {
+                    events.get(i).setId(ids[i]);
+                }
+                return;
+            }
+            disableBatchKeys();
+        }
+        for (Event event : events) {
+            addObject(event);
+        }
     }
 
     public void updateLatestPosition(Position position) throws SQLException {
@@ -334,6 +530,15 @@ public class DataManager {
                 .executeUpdate();
     }
 
+    public void updateLatestPositions(Collection<Position> positions) throws SQLException {
+        QueryBuilder builder = QueryBuilder.create(dataSource, getQuery("database.updateLatestPosition"));
+        Date now = new Date();
+        for (Position position : positions) {
+            builder.setDate("now", now).setObject(position).addBatch();
+        }
+        builder.executeBatch();
+    }
+
     public Collection<Position> getLatestPositions() throws SQLException {
         return QueryBuilder.create(dataSource, getQuery("database.selectLatestPositions"))
                 .executeQuery(Position.class);
@@ -449,10 +654,61 @@ public class DataManager {
                 .executeQuery(clazz);
     }
 
+    public boolean isChangeTracking() {
+        return changeTracking;
+    }
+
+    public long getFullRefreshDelay() {
+        return fullRefreshDelay;
+    }
+
+    private static String getChangeType(Class<?> clazz) {
+        return clazz.equals(ManagedUser.class) ? User.class.getSimpleName() : clazz.getSimpleName();
+    }
+
+    private void addChange(Class<?> clazz, long entityId) throws SQLException {
+        if (changeTracking && TRACKED_CLASSES.contains(clazz)) {
+            Change change = new Change();
+            change.setObjectType(getChangeType(clazz));
+            change.setObjectId(entityId);
+            change.setChangeTime(new Date());
+            QueryBuilder.create(dataSource, getQuery(ACTION_INSERT, Change.class))
+                    .setObject(change)
+                    .executeUpdate();
+        }
+    }
+
+    public long getLastChangeId() throws SQLException {
+        if (changeTracking) {
+            Change change = QueryBuilder.create(dataSource, getQuery("database.selectLastChange"))
+                    .executeQuerySingle(Change.class);
+            if (change != null) {
+                return change.getId();
+            }
+        }
+        return 0;
+    }
+
+    public Collection<Change> getChanges(Class<?> clazz, long changeId) throws SQLException {
+        return QueryBuilder.create(dataSource, getQuery("database.selectChanges"))
+                .setLong("id", changeId)
+                .setString("objectType", getChangeType(clazz))
+                .executeQuery(Change.class);
+    }
+
+    public void clearChanges(Date changeTime) throws SQLException {
+        if (changeTracking) {
+            QueryBuilder.create(dataSource, getQuery("database.deleteChanges"))
+                    .setDate("changeTime", changeTime)
+                    .executeUpdate();
+        }
+    }
+
     public void addObject(BaseModel entity) throws SQLException {
         entity.setId(QueryBuilder.create(dataSource, getQuery(ACTION_INSERT, entity.getClass()), true)
                 .setObject(entity)
                 .executeUpdate());
+        addChange(entity.getClass(), entity.getId());
     }
 
     public void updateObject(BaseModel entity) throws SQLException {
@@ -464,12 +720,14 @@ public class DataManager {
                     .setObject(entity)
                     .executeUpdate();
         }
+        addChange(entity.getClass(), entity.getId());
     }
 
     public void removeObject(Class<? extends BaseModel> clazz, long entityId) throws SQLException {
         QueryBuilder.create(dataSource, getQuery(ACTION_DELETE, clazz))
                 .setLong("id", entityId)
                 .executeUpdate();
+        addChange(clazz, entityId);
     }
 
 }
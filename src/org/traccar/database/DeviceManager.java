@@ -18,7 +18,9 @@ package org.traccar.database;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +32,7 @@ import org.traccar.BaseProtocol;
 import org.traccar.Config;
 import org.traccar.Context;
 import org.traccar.helper.Log;
+import org.traccar.helper.LongObjectMap;
 import org.traccar.model.Command;
 import org.traccar.model.CommandType;
 import org.traccar.model.Device;
@@ -43,13 +46,25 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
 
     public static final long DEFAULT_REFRESH_DELAY = 300;
 
+    private static final int MAX_UNKNOWN_DEVICES = 100000;
+
+    private static final long CHANGES_RETENTION = 24 * 60 * 60 * 1000;
+    private static final long CHANGES_CLEANUP_DELAY = 60 * 60 * 1000;
+
     private final Config config;
     private final long dataRefreshDelay;
     private boolean lookupGroupsAttribute;
 
     private Map<String, Device> devicesByUniqueId;
+    // Copied on write, bulk refresh fills a pending copy and publishes it once
+    private volatile LongObjectMap<Device> devicesByNumericId;
+    private LongObjectMap<Device> pendingNumericIds;
     private Map<String, Device> devicesByPhone;
+    private Map<String, Long> unknownDevices;
+    private ResolvedAttributes resolvedAttributes;
+    private final long unknownTimeout;
     private AtomicLong devicesLastUpdate = new AtomicLong();
+    private AtomicLong changesLastCleanup = new AtomicLong();
 
     private final Map<Long, Position> positions = new ConcurrentHashMap<>();
 
@@ -64,8 +79,15 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
             devicesByPhone = new ConcurrentHashMap<>();
         }
         if (devicesByUniqueId == null) {
-            devicesByUniqueId = new ConcurrentHashMap<>();
+            initUniqueIdMaps(0);
+        }
+        if (unknownDevices == null) {
+            unknownDevices = new ConcurrentHashMap<>();
         }
+        if (resolvedAttributes == null) {
+            resolvedAttributes = new ResolvedAttributes();
+        }
+        unknownTimeout = config.getLong("database.unknownTimeout", 60) * 1000;
         dataRefreshDelay = config.getLong("database.refreshDelay", DEFAULT_REFRESH_DELAY) * 1000;
         lookupGroupsAttribute = config.getBoolean("deviceManager.lookupGroupsAttribute");
         fallbackToText = config.getBoolean("command.fallbackToSms");
@@ -76,19 +98,139 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
         long lastUpdate = devicesLastUpdate.get();
         if ((force || System.currentTimeMillis() - lastUpdate > dataRefreshDelay)
                 && devicesLastUpdate.compareAndSet(lastUpdate, System.currentTimeMillis())) {
-            refreshItems();
+            if (force) {
+                refreshItems();
+            } else {
+                refreshChanges();
+                long lastCleanup = changesLastCleanup.get();
+                if (System.currentTimeMillis() - lastCleanup > CHANGES_CLEANUP_DELAY
+                        && changesLastCleanup.compareAndSet(lastCleanup, System.currentTimeMillis())) {
+                    getDataManager().clearChanges(new Date(System.currentTimeMillis() - CHANGES_RETENTION));
+                }
+            }
         }
     }
 
+    private void initUniqueIdMaps(int size) {
+        devicesByUniqueId = new ConcurrentHashMap<>(size);
+        devicesByNumericId = new LongObjectMap<>(size);
+    }
+
     @Override
-    public Device getByUniqueId(String uniqueId) throws SQLException {
-        boolean forceUpdate = !devicesByUniqueId.containsKey(uniqueId) && !config.getBoolean("database.ignoreUnknown");
+    public void refreshItems() {
+        synchronized (this) {
+            pendingNumericIds = devicesByNumericId != null
+                    ? new LongObjectMap<>(devicesByNumericId) : new LongObjectMap<Device>();
+        }
+        try {
+            super.refreshItems();
+        } finally {
+            synchronized (this) {
+                devicesByNumericId = pendingNumericIds;
+                pendingNumericIds = null;
+            }
+        }
+    }
+
+    private synchronized void updateNumericId(long numericId, Device device) {
+        LongObjectMap<Device> map = pendingNumericIds;
+        if (map == null) {
+            map = new LongObjectMap<>(devicesByNumericId);
+        }
+        if (device != null) {
+            map.put(numericId, device);
+        } else {
+            map.remove(numericId);
+        }
+        if (pendingNumericIds == null) {
+            devicesByNumericId = map;
+        }
+    }
 
-        updateDeviceCache(forceUpdate);
+    // Only canonical numbers are mapped, so that leading zeros keep identifiers distinct
+    private static long parseNumericId(String uniqueId) {
+        int length = uniqueId.length();
+        if (length == 0 || length > 18 || uniqueId.charAt(0) < '1' || uniqueId.charAt(0) > '9') {
+            return 0;
+        }
+        long result = 0;
+        for (int i = 0; i < length; i++) {
+            char c = uniqueId.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
 
+    private Device lookupUniqueId(String uniqueId) {
+        long numericId = parseNumericId(uniqueId);
+        if (numericId != 0) {
+            return devicesByNumericId.get(numericId);
+        }
         return devicesByUniqueId.get(uniqueId);
     }
 
+    private boolean isKnownUnknown(String uniqueId) {
+        Long expiration = unknownDevices.get(uniqueId);
+        if (expiration != null) {
+            if (expiration > System.currentTimeMillis()) {
+                return true;
+            }
+            unknownDevices.remove(uniqueId);
+        }
+        return false;
+    }
+
+    private void addUnknown(String uniqueId) {
+        long now = System.currentTimeMillis();
+        if (unknownDevices.size() >= MAX_UNKNOWN_DEVICES) {
+            Iterator<Long> iterator = unknownDevices.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() <= now) {
+                    iterator.remove();
+                }
+            }
+            if (unknownDevices.size() >= MAX_UNKNOWN_DEVICES) {
+                unknownDevices.clear();
+            }
+        }
+        unknownDevices.put(uniqueId, now + unknownTimeout);
+    }
+
+    private Device loadDevice(String uniqueId) throws SQLException {
+        if (!config.hasKey("database.selectDeviceByUniqueId")) {
+            updateDeviceCache(true);
+            return lookupUniqueId(uniqueId);
+        }
+        Device device = getDataManager().getDeviceByUniqueId(uniqueId);
+        if (device != null) {
+            if (getById(device.getId()) != null) {
+                updateCachedItem(device);
+            } else {
+                addNewItem(device);
+            }
+            device = lookupUniqueId(uniqueId);
+        }
+        return device;
+    }
+
+    @Override
+    public Device getByUniqueId(String uniqueId) throws SQLException {
+
+        updateDeviceCache(false);
+
+        Device device = lookupUniqueId(uniqueId);
+        if (device == null && !config.getBoolean("database.ignoreUnknown") && !isKnownUnknown(uniqueId)) {
+            device = loadDevice(uniqueId);
+            if (device == null) {
+                addUnknown(uniqueId);
+            }
+        }
+        return device;
+    }
+
     public Device getDeviceByPhone(String phone) {
         return devicesByPhone.get(phone);
     }
@@ -132,9 +274,26 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
 
     private void putUniqueDeviceId(Device device) {
         if (devicesByUniqueId == null) {
-            devicesByUniqueId = new ConcurrentHashMap<>(getAllItems().size());
+            initUniqueIdMaps(getAllItems().size());
+        }
+        long numericId = parseNumericId(device.getUniqueId());
+        if (numericId != 0) {
+            updateNumericId(numericId, device);
+        } else {
+            devicesByUniqueId.put(device.getUniqueId(), device);
+        }
+        if (unknownDevices != null) {
+            unknownDevices.remove(device.getUniqueId());
+        }
+    }
+
+    private void removeUniqueDeviceId(String uniqueId) {
+        long numericId = parseNumericId(uniqueId);
+        if (numericId != 0) {
+            updateNumericId(numericId, null);
+        } else {
+            devicesByUniqueId.remove(uniqueId);
         }
-        devicesByUniqueId.put(device.getUniqueId(), device);
     }
 
     private void putPhone(Device device) {
@@ -159,6 +318,12 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
         }
     }
 
+    private void invalidateAttributes(long deviceId) {
+        if (resolvedAttributes != null) {
+            resolvedAttributes.invalidate(deviceId);
+        }
+    }
+
     @Override
     protected void updateCachedItem(Device device) {
         Device cachedDevice = getById(device.getId());
@@ -168,8 +333,9 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
         cachedDevice.setContact(device.getContact());
         cachedDevice.setModel(device.getModel());
         cachedDevice.setAttributes(device.getAttributes());
+        invalidateAttributes(device.getId());
         if (!device.getUniqueId().equals(cachedDevice.getUniqueId())) {
-            devicesByUniqueId.remove(cachedDevice.getUniqueId());
+            removeUniqueDeviceId(cachedDevice.getUniqueId());
             cachedDevice.setUniqueId(device.getUniqueId());
             putUniqueDeviceId(cachedDevice);
         }
@@ -188,7 +354,8 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
             String deviceUniqueId = cachedDevice.getUniqueId();
             String phone = cachedDevice.getPhone();
             super.removeCachedItem(deviceId);
-            devicesByUniqueId.remove(deviceUniqueId);
+            invalidateAttributes(deviceId);
+            removeUniqueDeviceId(deviceUniqueId);
             if (phone != null && !phone.isEmpty()) {
                 devicesByPhone.remove(phone);
             }
@@ -197,7 +364,11 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
     }
 
     public void updateDeviceStatus(Device device) throws SQLException {
-        getDataManager().updateDeviceStatus(device);
+        if (Context.getDeviceUpdater() != null) {
+            Context.getDeviceUpdater().updateStatus(device);
+        } else {
+            getDataManager().updateDeviceStatus(device);
+        }
         Device cachedDevice = getById(device.getId());
         if (cachedDevice != null) {
             cachedDevice.setStatus(device.getStatus());
@@ -225,21 +396,51 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
 
         if (isLatestPosition(position)) {
 
-            getDataManager().updateLatestPosition(position);
+            positions.put(position.getDeviceId(), position);
 
-            Device device = getById(position.getDeviceId());
-            if (device != null) {
-                device.setPositionId(position.getId());
+            // Queued positions get the pointer updated by the writer or the journal once stored
+            if (position.getId() != 0 && !isStorageDeferred()) {
+                storeLatestPosition(position);
             }
 
-            positions.put(position.getDeviceId(), position);
-
             if (Context.getConnectionManager() != null) {
                 Context.getConnectionManager().updatePosition(position);
             }
         }
     }
 
+    private static boolean isStorageDeferred() {
+        return Context.getPositionWriter() != null || Context.getJournalReplayer() != null;
+    }
+
+    public void updateStoredPosition(Position position) throws SQLException {
+        if (position.getId() == 0) {
+            return;
+        }
+        Position lastPosition = getLastPosition(position.getDeviceId());
+        if (lastPosition == null || position.getFixTime().after(lastPosition.getFixTime())) {
+            positions.put(position.getDeviceId(), position);
+            storeLatestPosition(position);
+        } else if (lastPosition == position
+                || lastPosition.getId() == 0 && lastPosition.getFixTime().equals(position.getFixTime())) {
+            lastPosition.setId(position.getId());
+            storeLatestPosition(lastPosition);
+        }
+    }
+
+    private void storeLatestPosition(Position position) throws SQLException {
+        if (Context.getDeviceUpdater() != null) {
+            Context.getDeviceUpdater().updateLatestPosition(position);
+        } else {
+            getDataManager().updateLatestPosition(position);
+        }
+
+        Device device = getById(position.getDeviceId());
+        if (device != null) {
+            device.setPositionId(position.getId());
+        }
+    }
+
     @Override
     public Position getLastPosition(long deviceId) {
         return positions.get(deviceId);
@@ -262,49 +463,67 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
 
     public boolean lookupAttributeBoolean(
             long deviceId, String attributeName, boolean defaultValue, boolean lookupConfig) {
-        String result = lookupAttribute(deviceId, attributeName, lookupConfig);
-        if (result != null) {
-            return Boolean.parseBoolean(result);
+        ResolvedAttributes.Value result = lookupAttribute(deviceId, attributeName, lookupConfig);
+        if (!result.isNull()) {
+            return result.getBoolean();
         }
         return defaultValue;
     }
 
     public String lookupAttributeString(
             long deviceId, String attributeName, String defaultValue, boolean lookupConfig) {
-        String result = lookupAttribute(deviceId, attributeName, lookupConfig);
-        if (result != null) {
-            return result;
+        ResolvedAttributes.Value result = lookupAttribute(deviceId, attributeName, lookupConfig);
+        if (!result.isNull()) {
+            return result.getString();
         }
         return defaultValue;
     }
 
     public int lookupAttributeInteger(long deviceId, String attributeName, int defaultValue, boolean lookupConfig) {
-        String result = lookupAttribute(deviceId, attributeName, lookupConfig);
-        if (result != null) {
-            return Integer.parseInt(result);
+        ResolvedAttributes.Value result = lookupAttribute(deviceId, attributeName, lookupConfig);
+        if (!result.isNull()) {
+            return result.getInteger();
         }
         return defaultValue;
     }
 
     public long lookupAttributeLong(
             long deviceId, String attributeName, long defaultValue, boolean lookupConfig) {
-        String result = lookupAttribute(deviceId, attributeName, lookupConfig);
-        if (result != null) {
-            return Long.parseLong(result);
+        ResolvedAttributes.Value result = lookupAttribute(deviceId, attributeName, lookupConfig);
+        if (!result.isNull()) {
+            return result.getLong();
         }
         return defaultValue;
     }
 
     public double lookupAttributeDouble(
             long deviceId, String attributeName, double defaultValue, boolean lookupConfig) {
-        String result = lookupAttribute(deviceId, attributeName, lookupConfig);
-        if (result != null) {
-            return Double.parseDouble(result);
+        ResolvedAttributes.Value result = lookupAttribute(deviceId, attributeName, lookupConfig);
+        if (!result.isNull()) {
+            return result.getDouble();
         }
         return defaultValue;
     }
 
-    private String lookupAttribute(long deviceId, String attributeName, boolean lookupConfig) {
+    public void invalidateAttributes() {
+        resolvedAttributes.invalidateAll();
+    }
+
+    private ResolvedAttributes.Value lookupAttribute(long deviceId, String attributeName, boolean lookupConfig) {
+        if (getById(deviceId) == null) {
+            return ResolvedAttributes.Value.NULL;
+        }
+        Map<String, ResolvedAttributes.Value> values = resolvedAttributes.getValues(deviceId, lookupConfig);
+        ResolvedAttributes.Value result = values.get(attributeName);
+        if (result == null) {
+            String value = resolveAttribute(deviceId, attributeName, lookupConfig);
+            result = value != null ? new ResolvedAttributes.Value(value) : ResolvedAttributes.Value.NULL;
+            values.put(attributeName, result);
+        }
+        return result;
+    }
+
+    private String resolveAttribute(long deviceId, String attributeName, boolean lookupConfig) {
         String result = null;
         Device device = getById(deviceId);
         if (device != null) {
@@ -339,9 +558,16 @@ public class DeviceManager extends BaseObjectManager<Device> implements Identity
     public void resetTotalDistance(DeviceTotalDistance deviceTotalDistance) throws SQLException {
         Position last = positions.get(deviceTotalDistance.getDeviceId());
         if (last != null) {
-            last.getAttributes().put(Position.KEY_TOTAL_DISTANCE, deviceTotalDistance.getTotalDistance());
-            getDataManager().addPosition(last);
-            updateLatestPosition(last);
+            // Stored as a new row, cached position may still be queued for storage with its own id
+            Position position = Context.getObjectMapper().convertValue(last, Position.class);
+            position.setId(0);
+            position.getAttributes().put(Position.KEY_TOTAL_DISTANCE, deviceTotalDistance.getTotalDistance());
+            getDataManager().addPosition(position);
+            positions.put(position.getDeviceId(), position);
+            storeLatestPosition(position);
+            if (Context.getConnectionManager() != null) {
+                Context.getConnectionManager().updatePosition(position);
+            }
         } else {
             throw new IllegalArgumentException();
         }
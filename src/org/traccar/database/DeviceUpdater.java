@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.traccar.helper.Log;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DeviceUpdater {
+
+    private final DataManager dataManager;
+    private final Timer timer = new Timer("device-updater", true);
+
+    private final ConcurrentHashMap<Long, Device> pendingStatus = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Position> pendingPositions = new ConcurrentHashMap<>();
+
+    public DeviceUpdater(DataManager dataManager, long delay) {
+        this.dataManager = dataManager;
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, delay, delay);
+    }
+
+    public void updateStatus(Device device) {
+        pendingStatus.put(device.getId(), device);
+    }
+
+    public void updateLatestPosition(Position position) {
+        Position pending = pendingPositions.get(position.getDeviceId());
+        if (pending == null || position.getFixTime().compareTo(pending.getFixTime()) >= 0) {
+            pendingPositions.put(position.getDeviceId(), position);
+        }
+    }
+
+    public int getPendingCount() {
+        return pendingStatus.size() + pendingPositions.size();
+    }
+
+    private static <T> List<T> drain(Map<Long, T> pending) {
+        List<T> result = new ArrayList<>(pending.size());
+        for (Long key : pending.keySet()) {
+            T value = pending.remove(key);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void flush() {
+
+        List<Device> devices = drain(pendingStatus);
+        if (!devices.isEmpty()) {
+            try {
+                dataManager.updateDeviceStatuses(devices);
+            } catch (SQLException error) {
+                Log.warning(error);
+                for (Device device : devices) {
+                    pendingStatus.putIfAbsent(device.getId(), device);
+                }
+            }
+        }
+
+        List<Position> positions = drain(pendingPositions);
+        if (!positions.isEmpty()) {
+            try {
+                dataManager.updateLatestPositions(positions);
+            } catch (SQLException error) {
+                Log.warning(error);
+                for (Position position : positions) {
+                    pendingPositions.putIfAbsent(position.getDeviceId(), position);
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        timer.cancel();
+        flush();
+    }
+
+}
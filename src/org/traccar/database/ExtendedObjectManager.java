@@ -17,14 +17,14 @@
 package org.traccar.database;
 
 import java.sql.SQLException;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.traccar.Context;
+import org.traccar.helper.ImmutableLongSet;
 import org.traccar.helper.Log;
+import org.traccar.helper.LongObjectMap;
+import org.traccar.helper.LongSet;
+import org.traccar.helper.LongSetMap;
 import org.traccar.model.Device;
 import org.traccar.model.Group;
 import org.traccar.model.Permission;
@@ -32,34 +32,39 @@ import org.traccar.model.BaseModel;
 
 public abstract class ExtendedObjectManager<T extends BaseModel> extends SimpleObjectManager<T> {
 
-    private final Map<Long, Set<Long>> deviceItems = new ConcurrentHashMap<>();
-    private final Map<Long, Set<Long>> deviceItemsWithGroups = new ConcurrentHashMap<>();
-    private final Map<Long, Set<Long>> groupItems = new ConcurrentHashMap<>();
+    // Published maps are never modified, updates build a copy and replace the reference
+    private volatile LongObjectMap<ImmutableLongSet> deviceItems = new LongObjectMap<>();
+    private volatile LongObjectMap<ImmutableLongSet> deviceItemsWithGroups = new LongObjectMap<>();
+    private volatile LongObjectMap<ImmutableLongSet> groupItems = new LongObjectMap<>();
 
     protected ExtendedObjectManager(DataManager dataManager, Class<T> baseClass) {
         super(dataManager, baseClass);
         refreshExtendedPermissions();
     }
 
-    public final Set<Long> getGroupItems(long groupId) {
-        if (!groupItems.containsKey(groupId)) {
-            groupItems.put(groupId, new HashSet<Long>());
-        }
-        return groupItems.get(groupId);
+    private static ImmutableLongSet get(LongObjectMap<ImmutableLongSet> map, long key) {
+        ImmutableLongSet result = map.get(key);
+        return result != null ? result : ImmutableLongSet.EMPTY;
     }
 
-    public final Set<Long> getDeviceItems(long deviceId) {
-        if (!deviceItems.containsKey(deviceId)) {
-            deviceItems.put(deviceId, new HashSet<Long>());
+    private static void set(LongObjectMap<ImmutableLongSet> map, long key, ImmutableLongSet value) {
+        if (value.isEmpty()) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
         }
-        return deviceItems.get(deviceId);
     }
 
-    public Set<Long> getAllDeviceItems(long deviceId) {
-        if (!deviceItemsWithGroups.containsKey(deviceId)) {
-            deviceItemsWithGroups.put(deviceId, new HashSet<Long>());
-        }
-        return deviceItemsWithGroups.get(deviceId);
+    public final ImmutableLongSet getGroupItems(long groupId) {
+        return get(groupItems, groupId);
+    }
+
+    public final ImmutableLongSet getDeviceItems(long deviceId) {
+        return get(deviceItems, deviceId);
+    }
+
+    public ImmutableLongSet getAllDeviceItems(long deviceId) {
+        return get(deviceItemsWithGroups, deviceId);
     }
 
     @Override
@@ -68,40 +73,117 @@ public abstract class ExtendedObjectManager<T extends BaseModel> extends SimpleO
         refreshExtendedPermissions();
     }
 
+    private ImmutableLongSet resolveDeviceItems(
+            LongObjectMap<ImmutableLongSet> deviceItems, LongObjectMap<ImmutableLongSet> groupItems, Device device) {
+        Set<Long> result = new LongSet();
+        result.addAll(get(deviceItems, device.getId()));
+        long groupId = device.getGroupId();
+        while (groupId != 0) {
+            result.addAll(get(groupItems, groupId));
+            Group group = (Group) Context.getGroupsManager().getById(groupId);
+            if (group != null) {
+                groupId = group.getGroupId();
+            } else {
+                groupId = 0;
+            }
+        }
+        return ImmutableLongSet.of(result);
+    }
+
+    private void refreshDeviceItems(long[] deviceIds) {
+        synchronized (this) {
+            LongObjectMap<ImmutableLongSet> items = new LongObjectMap<>(deviceItemsWithGroups);
+            for (long deviceId : deviceIds) {
+                Device device = Context.getDeviceManager().getById(deviceId);
+                if (device != null) {
+                    set(items, deviceId, resolveDeviceItems(deviceItems, groupItems, device));
+                } else {
+                    set(items, deviceId, get(deviceItems, deviceId));
+                }
+            }
+            deviceItemsWithGroups = items;
+        }
+        deviceItemsChanged(deviceIds);
+    }
+
+    /**
+     * Called after resolved items of the given devices have been published.
+     */
+    protected void deviceItemsChanged(long[] deviceIds) {
+    }
+
+    private static LongObjectMap<ImmutableLongSet> link(
+            LongObjectMap<ImmutableLongSet> map, long key, long value, boolean link) {
+        ImmutableLongSet values = get(map, key);
+        LongObjectMap<ImmutableLongSet> result = new LongObjectMap<>(map);
+        set(result, key, link ? values.with(value) : values.without(value));
+        return result;
+    }
+
+    /**
+     * Keys with different sets in the two maps, missing keys are treated as empty sets.
+     */
+    private static long[] changedKeys(LongObjectMap<ImmutableLongSet> map, LongObjectMap<ImmutableLongSet> other) {
+        LongSet result = new LongSet();
+        for (long key : map.keys()) {
+            if (!map.get(key).equals(get(other, key))) {
+                result.add(key);
+            }
+        }
+        for (long key : other.keys()) {
+            if (!map.containsKey(key)) {
+                result.add(key);
+            }
+        }
+        return result.toLongArray();
+    }
+
+    public void linkExtendedPermission(Permission permission, boolean link) {
+        if (permission.getOwnerClass().equals(Device.class)) {
+            synchronized (this) {
+                deviceItems = link(deviceItems, permission.getOwnerId(), permission.getPropertyId(), link);
+            }
+            refreshDeviceItems(new long[] {permission.getOwnerId()});
+        } else if (permission.getOwnerClass().equals(Group.class)) {
+            synchronized (this) {
+                groupItems = link(groupItems, permission.getOwnerId(), permission.getPropertyId(), link);
+            }
+            refreshDeviceItems(
+                    Context.getPermissionsManager().getGroupDevices(permission.getOwnerId()).toLongArray());
+        }
+    }
+
     public void refreshExtendedPermissions() {
         if (getDataManager() != null) {
             try {
 
-                Collection<Permission> databaseGroupPermissions =
-                        getDataManager().getPermissions(Group.class, getBaseClass());
-
-                groupItems.clear();
-                for (Permission groupPermission : databaseGroupPermissions) {
-                    getGroupItems(groupPermission.getOwnerId()).add(groupPermission.getPropertyId());
+                LongSetMap newGroupItems = new LongSetMap();
+                for (Permission groupPermission : getDataManager().getPermissions(Group.class, getBaseClass())) {
+                    newGroupItems.add(groupPermission.getOwnerId(), groupPermission.getPropertyId());
                 }
 
-                Collection<Permission> databaseDevicePermissions =
-                        getDataManager().getPermissions(Device.class, getBaseClass());
-
-                deviceItems.clear();
-                deviceItemsWithGroups.clear();
-
-                for (Permission devicePermission : databaseDevicePermissions) {
-                    getDeviceItems(devicePermission.getOwnerId()).add(devicePermission.getPropertyId());
-                    getAllDeviceItems(devicePermission.getOwnerId()).add(devicePermission.getPropertyId());
+                LongSetMap newDeviceItems = new LongSetMap();
+                for (Permission devicePermission : getDataManager().getPermissions(Device.class, getBaseClass())) {
+                    newDeviceItems.add(devicePermission.getOwnerId(), devicePermission.getPropertyId());
                 }
 
+                LongObjectMap<ImmutableLongSet> frozenGroupItems = newGroupItems.freeze();
+                LongObjectMap<ImmutableLongSet> frozenDeviceItems = newDeviceItems.freeze();
+                LongObjectMap<ImmutableLongSet> newDeviceItemsWithGroups = new LongObjectMap<>(frozenDeviceItems);
                 for (Device device : Context.getDeviceManager().getAllDevices()) {
-                    long groupId = device.getGroupId();
-                    while (groupId != 0) {
-                        getAllDeviceItems(device.getId()).addAll(getGroupItems(groupId));
-                        Group group = (Group) Context.getGroupsManager().getById(groupId);
-                        if (group != null) {
-                            groupId = group.getGroupId();
-                        } else {
-                            groupId = 0;
-                        }
-                    }
+                    set(newDeviceItemsWithGroups, device.getId(),
+                            resolveDeviceItems(frozenDeviceItems, frozenGroupItems, device));
+                }
+
+                long[] changedDevices;
+                synchronized (this) {
+                    changedDevices = changedKeys(newDeviceItemsWithGroups, deviceItemsWithGroups);
+                    groupItems = frozenGroupItems;
+                    deviceItems = frozenDeviceItems;
+                    deviceItemsWithGroups = newDeviceItemsWithGroups;
+                }
+                if (changedDevices.length > 0) {
+                    deviceItemsChanged(changedDevices);
                 }
 
             } catch (SQLException | ClassNotFoundException error) {
@@ -16,51 +16,165 @@
 package org.traccar.database;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.traccar.Context;
+import org.traccar.geofence.GeofenceGeometry;
+import org.traccar.geofence.GeofenceIndex;
 import org.traccar.model.Device;
 import org.traccar.model.Geofence;
 import org.traccar.model.Position;
 
 public class GeofenceManager extends ExtendedObjectManager<Geofence> {
 
+    private static final int INDEX_THRESHOLD = 16;
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private static final ForkJoinPool RECALCULATE_POOL = new ForkJoinPool();
+
+    private volatile GeofenceIndex geofenceIndex;
+
     public GeofenceManager(DataManager dataManager) {
         super(dataManager, Geofence.class);
     }
 
     @Override
-    public final void refreshExtendedPermissions() {
-        super.refreshExtendedPermissions();
-        recalculateDevicesGeofences();
+    protected void addNewItem(Geofence geofence) {
+        super.addNewItem(geofence);
+        invalidateGeofenceIndex();
+    }
+
+    @Override
+    protected void updateCachedItem(Geofence geofence) {
+        super.updateCachedItem(geofence);
+        invalidateGeofenceIndex();
+    }
+
+    @Override
+    protected void removeCachedItem(long geofenceId) {
+        super.removeCachedItem(geofenceId);
+        invalidateGeofenceIndex();
+    }
+
+    private synchronized void invalidateGeofenceIndex() {
+        geofenceIndex = null;
+    }
+
+    // Rebuilt lazily, so that bulk refresh does not rebuild it for every geofence
+    private GeofenceIndex getGeofenceIndex() {
+        GeofenceIndex result = geofenceIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = geofenceIndex;
+                if (result == null) {
+                    List<Geofence> geofences = new ArrayList<>();
+                    for (Geofence geofence : getItems(getAllItems())) {
+                        if (geofence != null && geofence.getGeometry() != null) {
+                            geofences.add(geofence);
+                        }
+                    }
+                    long[] ids = new long[geofences.size()];
+                    GeofenceGeometry[] geometries = new GeofenceGeometry[geofences.size()];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = geofences.get(i).getId();
+                        geometries[i] = geofences.get(i).getGeometry();
+                    }
+                    result = new GeofenceIndex(ids, geometries);
+                    geofenceIndex = result;
+                }
+            }
+        }
+        return result;
     }
 
     public List<Long> getCurrentDeviceGeofences(Position position) {
         List<Long> result = new ArrayList<>();
-        for (long geofenceId : getAllDeviceItems(position.getDeviceId())) {
-            Geofence geofence = getById(geofenceId);
-            if (geofence != null && geofence.getGeometry()
-                    .containsPoint(position.getLatitude(), position.getLongitude())) {
-                result.add(geofenceId);
+        Set<Long> deviceGeofences = getAllDeviceItems(position.getDeviceId());
+        if (deviceGeofences.size() > INDEX_THRESHOLD) {
+            for (long geofenceId : getGeofenceIndex().find(position.getLatitude(), position.getLongitude())) {
+                if (deviceGeofences.contains(geofenceId)) {
+                    Geofence geofence = getById(geofenceId);
+                    if (geofence != null && geofence.getGeometry()
+                            .containsPoint(position.getLatitude(), position.getLongitude())) {
+                        result.add(geofenceId);
+                    }
+                }
+            }
+        } else {
+            for (long geofenceId : deviceGeofences) {
+                Geofence geofence = getById(geofenceId);
+                if (geofence != null && geofence.getGeometry()
+                        .containsPoint(position.getLatitude(), position.getLongitude())) {
+                    result.add(geofenceId);
+                }
             }
         }
         return result;
     }
 
+    @Override
+    protected void deviceItemsChanged(long[] deviceIds) {
+        recalculateDevicesGeofences(deviceIds);
+    }
+
+    private void recalculateDeviceGeofences(Device device) {
+        List<Long> deviceGeofenceIds = new ArrayList<>();
+        Position lastPosition = Context.getIdentityManager().getLastPosition(device.getId());
+        if (lastPosition != null) {
+            deviceGeofenceIds.addAll(getCurrentDeviceGeofences(lastPosition));
+        }
+        device.setGeofenceIds(deviceGeofenceIds);
+    }
+
+    private void recalculateDevicesGeofences(long[] deviceIds) {
+        if (deviceIds.length < PARALLEL_THRESHOLD) {
+            new RecalculateTask(deviceIds, 0, deviceIds.length).compute();
+        } else {
+            RECALCULATE_POOL.invoke(new RecalculateTask(deviceIds, 0, deviceIds.length));
+        }
+    }
+
     public void recalculateDevicesGeofences() {
-        for (Device device : Context.getDeviceManager().getAllDevices()) {
-            List<Long> deviceGeofenceIds = device.getGeofenceIds();
-            if (deviceGeofenceIds == null) {
-                deviceGeofenceIds = new ArrayList<>();
+        Collection<Device> devices = Context.getDeviceManager().getAllDevices();
+        long[] deviceIds = new long[devices.size()];
+        int index = 0;
+        for (Device device : devices) {
+            deviceIds[index++] = device.getId();
+        }
+        recalculateDevicesGeofences(deviceIds);
+    }
+
+    private class RecalculateTask extends RecursiveAction {
+
+        private final long[] deviceIds;
+        private final int from;
+        private final int to;
+
+        RecalculateTask(long[] deviceIds, int from, int to) {
+            this.deviceIds = deviceIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    Device device = Context.getDeviceManager().getById(deviceIds[i]);
+                    if (device != null) {
+                        recalculateDeviceGeofences(device);
+                    }
+                }
             } else {
-                deviceGeofenceIds.clear();
+                int middle = (from + to) >>> 1;
+                invokeAll(new RecalculateTask(deviceIds, from, middle), new RecalculateTask(deviceIds, middle, to));
             }
-            Position lastPosition = Context.getIdentityManager().getLastPosition(device.getId());
-            if (lastPosition != null && getAllDeviceItems(device.getId()) != null) {
-                deviceGeofenceIds.addAll(getCurrentDeviceGeofences(lastPosition));
-            }
-            device.setGeofenceIds(deviceGeofenceIds);
         }
+
     }
 
 }
@@ -51,7 +51,11 @@ public class GroupsManager extends BaseObjectManager<Group> implements Managable
         long lastUpdate = groupsLastUpdate.get();
         if ((force || System.currentTimeMillis() - lastUpdate > dataRefreshDelay)
                 && groupsLastUpdate.compareAndSet(lastUpdate, System.currentTimeMillis())) {
-            refreshItems();
+            if (force) {
+                refreshItems();
+            } else {
+                refreshChanges();
+            }
         }
     }
 
@@ -69,16 +73,31 @@ public class GroupsManager extends BaseObjectManager<Group> implements Managable
         return result;
     }
 
+    private void invalidateAttributes() {
+        // Group attributes are inherited by devices of all nested groups
+        if (Context.getDeviceManager() != null) {
+            Context.getDeviceManager().invalidateAttributes();
+        }
+    }
+
     @Override
     protected void addNewItem(Group group) {
         checkGroupCycles(group);
         super.addNewItem(group);
+        invalidateAttributes();
     }
 
     @Override
     protected void updateCachedItem(Group group) {
         checkGroupCycles(group);
         super.updateCachedItem(group);
+        invalidateAttributes();
+    }
+
+    @Override
+    protected void removeCachedItem(long groupId) {
+        super.removeCachedItem(groupId);
+        invalidateAttributes();
     }
 
     @Override
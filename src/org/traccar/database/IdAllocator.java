@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.traccar.helper.Log;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class IdAllocator {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 1000;
+
+    private final DataSource dataSource;
+    private final String table;
+    private final int blockSize;
+
+    private long nextId;
+    private long limitId;
+
+    private long prefetchedId;
+    private boolean prefetching;
+    private long prefetchFailureTime;
+
+    private volatile boolean seeded;
+
+    public IdAllocator(DataSource dataSource, String table, int blockSize) {
+        this.dataSource = dataSource;
+        this.table = table;
+        this.blockSize = blockSize > 0 ? blockSize : 1;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Reserves a block up front, so that ids are available to tryNextId right away.
+     */
+    public void reserveFirstBlock() throws SQLException {
+        addBlock(reserve());
+    }
+
+    public long nextId() throws SQLException {
+        long result = tryNextId();
+        while (result == 0) {
+            addBlock(reserve());
+            result = tryNextId();
+        }
+        return result;
+    }
+
+    /**
+     * Returns id from already reserved blocks without touching the database, or 0 if none are left. Next block is
+     * reserved in background once half of the current one is used.
+     */
+    public long tryNextId() {
+        long result = 0;
+        boolean prefetch = false;
+        synchronized (this) {
+            if (nextId >= limitId && prefetchedId != 0) {
+                nextId = prefetchedId;
+                limitId = prefetchedId + blockSize;
+                prefetchedId = 0;
+            }
+            if (nextId < limitId) {
+                result = nextId++;
+            }
+            if (limitId - nextId <= blockSize / 2 && prefetchedId == 0 && !prefetching
+                    && System.currentTimeMillis() - prefetchFailureTime > RETRY_DELAY) {
+                prefetching = true;
+                prefetch = true;
+            }
+        }
+        if (prefetch) {
+            prefetch();
+        }
+        return result;
+    }
+
+    private synchronized void addBlock(long firstId) {
+        if (nextId >= limitId) {
+            nextId = firstId;
+            limitId = firstId + blockSize;
+        } else if (prefetchedId == 0) {
+            prefetchedId = firstId;
+        }
+    }
+
+    private void prefetch() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long firstId = 0;
+                try {
+                    firstId = reserve();
+                } catch (SQLException error) {
+                    Log.warning(error);
+                }
+                synchronized (IdAllocator.this) {
+                    prefetching = false;
+                    if (firstId != 0) {
+                        addBlock(firstId);
+                    } else {
+                        prefetchFailureTime = System.currentTimeMillis();
+                    }
+                }
+            }
+        }, "id-allocator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private long reserve() throws SQLException {
+        SQLException lastError = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    long result = reserve(connection);
+                    connection.commit();
+                    seeded = true;
+                    return result;
+                } catch (SQLException error) {
+                    // Concurrent initialization of the same sequence row fails on primary key, retry
+                    connection.rollback();
+                    lastError = error;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+        throw lastError;
+    }
+
+    private long reserve(Connection connection) throws SQLException {
+
+        if (!seeded) {
+            // Rows may have been inserted with generated ids while the allocator was disabled
+            long firstId = selectFirstId(connection);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE sequences SET nextid = ? WHERE name = ? AND nextid < ?")) {
+                statement.setLong(1, firstId);
+                statement.setString(2, table);
+                statement.setLong(3, firstId);
+                statement.executeUpdate();
+            }
+        }
+
+        long firstId = reserveBlock(connection);
+
+        if (connection.getMetaData().getDatabaseProductName().equals("PostgreSQL")) {
+            // Keep serial sequence ahead of allocated ids, so generated ids stay valid if the allocator is disabled
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT setval(pg_get_serial_sequence(?, 'id'), ?)")) {
+                statement.setString(1, table);
+                statement.setLong(2, firstId + blockSize - 1);
+                statement.execute();
+            }
+        }
+
+        return firstId;
+    }
+
+    private long selectFirstId(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT MAX(id) FROM " + table);
+                ResultSet resultSet = statement.executeQuery()) {
+            if (resultSet.next()) {
+                return resultSet.getLong(1) + 1;
+            }
+        }
+        return 1;
+    }
+
+    private long reserveBlock(Connection connection) throws SQLException {
+
+        // Plain UPDATE takes a row lock on every supported database, so the following SELECT is consistent
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE sequences SET nextid = nextid + ? WHERE name = ?")) {
+            statement.setLong(1, blockSize);
+            statement.setString(2, table);
+            if (statement.executeUpdate() > 0) {
+                try (PreparedStatement select = connection.prepareStatement(
+                        "SELECT nextid FROM sequences WHERE name = ?")) {
+                    select.setString(1, table);
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        if (resultSet.next()) {
+                            return resultSet.getLong(1) - blockSize;
+                        }
+                    }
+                }
+                throw new SQLException("Sequence row disappeared: " + table);
+            }
+        }
+
+        long first = selectFirstId(connection);
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO sequences (name, nextid) VALUES (?, ?)")) {
+            statement.setString(1, table);
+            statement.setLong(2, first + blockSize);
+            statement.executeUpdate();
+        }
+        return first;
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+public class JdbcBatchDialect implements BulkInsertDialect {
+
+    @Override
+    public void configure(HikariConfig hikariConfig) {
+    }
+
+    @Override
+    public long[] insert(DataSource dataSource, String query, List<?> objects, boolean returnGeneratedKeys)
+            throws SQLException {
+        QueryBuilder builder = QueryBuilder.create(dataSource, query, returnGeneratedKeys);
+        for (Object object : objects) {
+            builder.setObject(object).addBatch();
+        }
+        return builder.executeBatch();
+    }
+
+}
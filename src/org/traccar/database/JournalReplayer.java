@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.traccar.BackpressureManager;
+import org.traccar.Context;
+import org.traccar.helper.Log;
+import org.traccar.model.Position;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class JournalReplayer implements Runnable {
+
+    private static final long MIN_RETRY_DELAY = 1000;
+    private static final long MAX_RETRY_DELAY = 60000;
+
+    private final DataManager dataManager;
+    private final PositionJournal journal;
+    private final int batchSize;
+    private final long idleDelay;
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong replayedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong quarantinedCount = new AtomicLong();
+
+    public JournalReplayer(DataManager dataManager, PositionJournal journal, int batchSize, long idleDelay) {
+        this.dataManager = dataManager;
+        this.journal = journal;
+        this.batchSize = batchSize;
+        this.idleDelay = idleDelay;
+
+        thread = new Thread(this, "journal-replayer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean write(Position position) {
+        // Only ids reserved in advance, if none are left the id is assigned on replay
+        dataManager.tryAllocatePositionId(position);
+        position.setServerTime(new Date());
+        try {
+            boolean accepted = journal.append(Context.getObjectMapper().writeValueAsBytes(position));
+            checkBackpressure();
+            return accepted;
+        } catch (IOException error) {
+            Log.warning(error);
+            return false;
+        }
+    }
+
+    private void checkBackpressure() {
+        BackpressureManager backpressureManager = Context.getBackpressureManager();
+        if (backpressureManager != null) {
+            backpressureManager.checkJournal(journal.getBacklog());
+        }
+    }
+
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getQuarantinedCount() {
+        return quarantinedCount.get();
+    }
+
+    private List<Position> decode(List<byte[]> records) {
+        List<Position> positions = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+            try {
+                positions.add(Context.getObjectMapper().readValue(record, Position.class));
+            } catch (IOException error) {
+                Log.warning(error);
+            }
+        }
+        return positions;
+    }
+
+    private void sleep(long delay) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long retryDelay = MIN_RETRY_DELAY;
+        while (running) {
+            List<byte[]> records = journal.read(batchSize);
+            if (records.isEmpty()) {
+                sleep(idleDelay);
+                continue;
+            }
+            List<Position> positions = decode(records);
+            List<Position> rejected = Collections.emptyList();
+            try {
+                if (!positions.isEmpty()) {
+                    try {
+                        dataManager.addPositions(positions);
+                    } catch (SQLException error) {
+                        // Rows stored before a crash are skipped, rejected rows must not block the journal
+                        Log.warning(error);
+                        rejected = dataManager.addPositionsSeparately(positions);
+                        for (Position position : rejected) {
+                            journal.quarantine(Context.getObjectMapper().writeValueAsBytes(position));
+                            quarantinedCount.incrementAndGet();
+                        }
+                    }
+                }
+                journal.commit();
+                checkBackpressure();
+                replayedCount.addAndGet(positions.size());
+                retryDelay = MIN_RETRY_DELAY;
+            } catch (SQLException | IOException error) {
+                journal.rewind();
+                failedCount.incrementAndGet();
+                Log.warning(error);
+                sleep(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+                continue;
+            }
+
+            DeviceManager deviceManager = Context.getDeviceManager();
+            if (deviceManager != null) {
+                for (Position position : positions) {
+                    if (rejected.contains(position)) {
+                        continue;
+                    }
+                    try {
+                        deviceManager.updateStoredPosition(position);
+                    } catch (SQLException error) {
+                        Log.warning(error);
+                    }
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(MAX_RETRY_DELAY);
+        } catch (InterruptedException error) {
+            Log.warning(error);
+        }
+        journal.close();
+    }
+
+}
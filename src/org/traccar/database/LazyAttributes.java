@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.traccar.Context;
+import org.traccar.helper.Log;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+@JsonSerialize(using = LazyAttributes.Serializer.class)
+public class LazyAttributes implements Map<String, Object> {
+
+    private static final TypeReference<LinkedHashMap<String, Object>> TYPE =
+            new TypeReference<LinkedHashMap<String, Object>>() {
+            };
+
+    private String raw;
+    private Map<String, Object> attributes;
+
+    public LazyAttributes(String raw) {
+        this.raw = raw;
+    }
+
+    public boolean isParsed() {
+        return attributes != null;
+    }
+
+    private Map<String, Object> read() {
+        if (attributes == null) {
+            try {
+                attributes = Context.getObjectMapper().readValue(raw, TYPE);
+            } catch (IOException error) {
+                Log.warning(error);
+                attributes = new LinkedHashMap<>();
+                raw = null;
+            }
+            if (attributes == null) {
+                attributes = new LinkedHashMap<>();
+                raw = null;
+            }
+        }
+        return attributes;
+    }
+
+    private Map<String, Object> write() {
+        read();
+        raw = null;
+        return attributes;
+    }
+
+    @Override
+    public int size() {
+        return read().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return read().isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return read().containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return read().containsValue(value);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return read().get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return write().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return write().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> map) {
+        write().putAll(map);
+    }
+
+    @Override
+    public void clear() {
+        write().clear();
+    }
+
+    // Views allow modification, so raw value can not be trusted after they are handed out
+    @Override
+    public Set<String> keySet() {
+        return write().keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return write().values();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return write().entrySet();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return read().equals(object);
+    }
+
+    @Override
+    public int hashCode() {
+        return read().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return read().toString();
+    }
+
+    public static class Serializer extends JsonSerializer<LazyAttributes> {
+
+        @Override
+        public void serialize(
+                LazyAttributes value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (value.raw != null && value.raw.startsWith("{")) {
+                generator.writeRawValue(value.raw);
+            } else {
+                provider.defaultSerializeValue(value.read(), generator);
+            }
+        }
+
+    }
+
+}
@@ -18,6 +18,7 @@ package org.traccar.database;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -54,7 +55,10 @@ public class NotificationManager {
         } catch (SQLException error) {
             Log.warning(error);
         }
+        notifyEvent(event, position);
+    }
 
+    private void notifyEvent(Event event, Position position) {
         Set<Long> users = Context.getPermissionsManager().getDeviceUsers(event.getDeviceId());
         for (long userId : users) {
             if (event.getGeofenceId() == 0 || Context.getGeofenceManager() != null
@@ -79,8 +83,19 @@ public class NotificationManager {
     }
 
     public void updateEvents(Map<Event, Position> events) {
-        for (Entry<Event, Position> event : events.entrySet()) {
-            updateEvent(event.getKey(), event.getValue());
+        if (events.size() > 1) {
+            try {
+                dataManager.addEvents(new ArrayList<>(events.keySet()));
+            } catch (SQLException error) {
+                Log.warning(error);
+            }
+            for (Entry<Event, Position> event : events.entrySet()) {
+                notifyEvent(event.getKey(), event.getValue());
+            }
+        } else {
+            for (Entry<Event, Position> event : events.entrySet()) {
+                updateEvent(event.getKey(), event.getValue());
+            }
         }
     }
 
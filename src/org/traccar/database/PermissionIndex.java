@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.traccar.helper.ImmutableLongSet;
+import org.traccar.helper.LongObjectMap;
+import org.traccar.helper.LongSet;
+import org.traccar.helper.LongSetMap;
+import org.traccar.model.Device;
+import org.traccar.model.Group;
+import org.traccar.model.Permission;
+
+import java.util.Collection;
+
+public final class PermissionIndex {
+
+    public static final PermissionIndex EMPTY = new PermissionIndex(
+            new LongObjectMap<ImmutableLongSet>(), new LongObjectMap<ImmutableLongSet>(),
+            new LongObjectMap<ImmutableLongSet>(), new LongObjectMap<ImmutableLongSet>(),
+            new LongObjectMap<ImmutableLongSet>(), new LongObjectMap<ImmutableLongSet>(),
+            new LongObjectMap<ImmutableLongSet>());
+
+    private final LongObjectMap<ImmutableLongSet> userGroups;
+    private final LongObjectMap<ImmutableLongSet> userDevices;
+    private final LongObjectMap<ImmutableLongSet> groupGroups;
+    private final LongObjectMap<ImmutableLongSet> groupDevices;
+
+    private final LongObjectMap<ImmutableLongSet> groupPermissions;
+    private final LongObjectMap<ImmutableLongSet> devicePermissions;
+    private final LongObjectMap<ImmutableLongSet> deviceUsers;
+
+    private PermissionIndex(
+            LongObjectMap<ImmutableLongSet> userGroups, LongObjectMap<ImmutableLongSet> userDevices,
+            LongObjectMap<ImmutableLongSet> groupGroups, LongObjectMap<ImmutableLongSet> groupDevices,
+            LongObjectMap<ImmutableLongSet> groupPermissions, LongObjectMap<ImmutableLongSet> devicePermissions,
+            LongObjectMap<ImmutableLongSet> deviceUsers) {
+        this.userGroups = userGroups;
+        this.userDevices = userDevices;
+        this.groupGroups = groupGroups;
+        this.groupDevices = groupDevices;
+        this.groupPermissions = groupPermissions;
+        this.devicePermissions = devicePermissions;
+        this.deviceUsers = deviceUsers;
+    }
+
+    private static ImmutableLongSet get(LongObjectMap<ImmutableLongSet> map, long key) {
+        ImmutableLongSet result = map.get(key);
+        return result != null ? result : ImmutableLongSet.EMPTY;
+    }
+
+    private static void set(LongObjectMap<ImmutableLongSet> map, long key, ImmutableLongSet value) {
+        if (value.isEmpty()) {
+            map.remove(key);
+        } else {
+            map.put(key, value);
+        }
+    }
+
+    public ImmutableLongSet getGroupPermissions(long userId) {
+        return get(groupPermissions, userId);
+    }
+
+    public ImmutableLongSet getDevicePermissions(long userId) {
+        return get(devicePermissions, userId);
+    }
+
+    public ImmutableLongSet getDeviceUsers(long deviceId) {
+        return get(deviceUsers, deviceId);
+    }
+
+    public ImmutableLongSet getGroupDevices(long groupId) {
+        return get(groupDevices, groupId);
+    }
+
+    public PermissionIndex withDevicePermission(long userId, long deviceId, boolean link) {
+        ImmutableLongSet devices = get(userDevices, userId);
+        ImmutableLongSet updated = link ? devices.with(deviceId) : devices.without(deviceId);
+        if (updated == devices) {
+            return this;
+        }
+        LongObjectMap<ImmutableLongSet> newUserDevices = new LongObjectMap<>(userDevices);
+        set(newUserDevices, userId, updated);
+        return withUser(userId, userGroups, newUserDevices);
+    }
+
+    public PermissionIndex withGroupPermission(long userId, long groupId, boolean link) {
+        ImmutableLongSet groups = get(userGroups, userId);
+        ImmutableLongSet updated = link ? groups.with(groupId) : groups.without(groupId);
+        if (updated == groups) {
+            return this;
+        }
+        LongObjectMap<ImmutableLongSet> newUserGroups = new LongObjectMap<>(userGroups);
+        set(newUserGroups, userId, updated);
+        return withUser(userId, newUserGroups, userDevices);
+    }
+
+    private PermissionIndex withUser(
+            long userId,
+            LongObjectMap<ImmutableLongSet> newUserGroups, LongObjectMap<ImmutableLongSet> newUserDevices) {
+
+        // Only the changed user is resolved again, group hierarchy is already flattened
+        LongSet groups = new LongSet();
+        LongSet devices = new LongSet();
+        devices.addAll(get(newUserDevices, userId));
+        for (long groupId : get(newUserGroups, userId)) {
+            groups.add(groupId);
+            groups.addAll(get(groupGroups, groupId));
+            devices.addAll(get(groupDevices, groupId));
+        }
+        ImmutableLongSet oldDevices = getDevicePermissions(userId);
+        ImmutableLongSet newDevices = ImmutableLongSet.of(devices);
+
+        LongObjectMap<ImmutableLongSet> newGroupPermissions = new LongObjectMap<>(groupPermissions);
+        set(newGroupPermissions, userId, ImmutableLongSet.of(groups));
+        LongObjectMap<ImmutableLongSet> newDevicePermissions = new LongObjectMap<>(devicePermissions);
+        set(newDevicePermissions, userId, newDevices);
+
+        LongObjectMap<ImmutableLongSet> newDeviceUsers = new LongObjectMap<>(deviceUsers);
+        for (int i = 0; i < oldDevices.size(); i++) {
+            long deviceId = oldDevices.get(i);
+            if (!newDevices.contains(deviceId)) {
+                set(newDeviceUsers, deviceId, get(newDeviceUsers, deviceId).without(userId));
+            }
+        }
+        for (int i = 0; i < newDevices.size(); i++) {
+            long deviceId = newDevices.get(i);
+            if (!oldDevices.contains(deviceId)) {
+                set(newDeviceUsers, deviceId, get(newDeviceUsers, deviceId).with(userId));
+            }
+        }
+
+        return new PermissionIndex(
+                newUserGroups, newUserDevices, groupGroups, groupDevices,
+                newGroupPermissions, newDevicePermissions, newDeviceUsers);
+    }
+
+    public static PermissionIndex build(
+            Collection<Group> groups, Collection<Device> devices,
+            Collection<Permission> groupPermissions, Collection<Permission> devicePermissions) {
+
+        GroupTree groupTree = new GroupTree(groups, devices);
+
+        LongSetMap groupGroups = new LongSetMap();
+        LongSetMap groupDevices = new LongSetMap();
+        for (Group group : groups) {
+            for (Group child : groupTree.getGroups(group.getId())) {
+                groupGroups.add(group.getId(), child.getId());
+            }
+            for (Device device : groupTree.getDevices(group.getId())) {
+                groupDevices.add(group.getId(), device.getId());
+            }
+        }
+
+        LongSetMap userGroups = new LongSetMap();
+        LongSetMap userDevices = new LongSetMap();
+        LongSetMap resolvedGroups = new LongSetMap();
+        LongSetMap resolvedDevices = new LongSetMap();
+        for (Permission groupPermission : groupPermissions) {
+            long userId = groupPermission.getOwnerId();
+            long groupId = groupPermission.getPropertyId();
+            userGroups.add(userId, groupId);
+            resolvedGroups.add(userId, groupId);
+            resolvedGroups.addAll(userId, groupGroups.get(groupId));
+            resolvedDevices.addAll(userId, groupDevices.get(groupId));
+        }
+
+        for (Permission devicePermission : devicePermissions) {
+            userDevices.add(devicePermission.getOwnerId(), devicePermission.getPropertyId());
+            resolvedDevices.add(devicePermission.getOwnerId(), devicePermission.getPropertyId());
+        }
+
+        LongSetMap deviceUsers = new LongSetMap();
+        for (long userId : resolvedDevices.keys()) {
+            for (long deviceId : resolvedDevices.get(userId)) {
+                deviceUsers.add(deviceId, userId);
+            }
+        }
+
+        return new PermissionIndex(
+                userGroups.freeze(), userDevices.freeze(), groupGroups.freeze(), groupDevices.freeze(),
+                resolvedGroups.freeze(), resolvedDevices.freeze(), deviceUsers.freeze());
+    }
+
+}
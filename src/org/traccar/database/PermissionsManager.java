@@ -16,6 +16,7 @@
 package org.traccar.database;
 
 import org.traccar.Context;
+import org.traccar.helper.ImmutableLongSet;
 import org.traccar.helper.Log;
 import org.traccar.model.Attribute;
 import org.traccar.model.BaseModel;
@@ -31,10 +32,6 @@ import org.traccar.model.User;
 
 import java.lang.reflect.Method;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 
 public class PermissionsManager {
 
@@ -43,10 +40,7 @@ public class PermissionsManager {
 
     private volatile Server server;
 
-    private final Map<Long, Set<Long>> groupPermissions = new HashMap<>();
-    private final Map<Long, Set<Long>> devicePermissions = new HashMap<>();
-    private final Map<Long, Set<Long>> deviceUsers = new HashMap<>();
-    private final Map<Long, Set<Long>> groupDevices = new HashMap<>();
+    private volatile PermissionIndex permissionIndex = PermissionIndex.EMPTY;
 
     public PermissionsManager(DataManager dataManager, UsersManager usersManager) {
         this.dataManager = dataManager;
@@ -59,82 +53,56 @@ public class PermissionsManager {
         return (User) usersManager.getById(userId);
     }
 
-    public Set<Long> getGroupPermissions(long userId) {
-        if (!groupPermissions.containsKey(userId)) {
-            groupPermissions.put(userId, new HashSet<Long>());
-        }
-        return groupPermissions.get(userId);
+    public PermissionIndex getPermissionIndex() {
+        return permissionIndex;
     }
 
-    public Set<Long> getDevicePermissions(long userId) {
-        if (!devicePermissions.containsKey(userId)) {
-            devicePermissions.put(userId, new HashSet<Long>());
-        }
-        return devicePermissions.get(userId);
+    synchronized void updatePermissionIndex(PermissionIndex permissionIndex) {
+        this.permissionIndex = permissionIndex;
     }
 
-    public Set<Long> getDeviceUsers(long deviceId) {
-        if (!deviceUsers.containsKey(deviceId)) {
-            deviceUsers.put(deviceId, new HashSet<Long>());
-        }
-        return deviceUsers.get(deviceId);
+    public ImmutableLongSet getGroupPermissions(long userId) {
+        return permissionIndex.getGroupPermissions(userId);
+    }
+
+    public ImmutableLongSet getDevicePermissions(long userId) {
+        return permissionIndex.getDevicePermissions(userId);
+    }
+
+    public ImmutableLongSet getDeviceUsers(long deviceId) {
+        return permissionIndex.getDeviceUsers(deviceId);
+    }
+
+    public ImmutableLongSet getGroupDevices(long groupId) {
+        return permissionIndex.getGroupDevices(groupId);
     }
 
-    public Set<Long> getGroupDevices(long groupId) {
-        if (!groupDevices.containsKey(groupId)) {
-            groupDevices.put(groupId, new HashSet<Long>());
+    private void invalidateServerAttributes() {
+        if (Context.getDeviceManager() != null) {
+            Context.getDeviceManager().invalidateAttributes();
         }
-        return groupDevices.get(groupId);
     }
 
     public void refreshServer() {
         try {
             server = dataManager.getServer();
+            invalidateServerAttributes();
         } catch (SQLException error) {
             Log.warning(error);
         }
     }
 
-    public final void refreshDeviceAndGroupPermissions() {
-        groupPermissions.clear();
-        devicePermissions.clear();
+    public final synchronized void refreshDeviceAndGroupPermissions() {
         try {
-            GroupTree groupTree = new GroupTree(Context.getGroupsManager().getItems(
-                    Context.getGroupsManager().getAllItems()),
-                    Context.getDeviceManager().getAllDevices());
-            for (Permission groupPermission : dataManager.getPermissions(User.class, Group.class)) {
-                Set<Long> userGroupPermissions = getGroupPermissions(groupPermission.getOwnerId());
-                Set<Long> userDevicePermissions = getDevicePermissions(groupPermission.getOwnerId());
-                userGroupPermissions.add(groupPermission.getPropertyId());
-                for (Group group : groupTree.getGroups(groupPermission.getPropertyId())) {
-                    userGroupPermissions.add(group.getId());
-                }
-                for (Device device : groupTree.getDevices(groupPermission.getPropertyId())) {
-                    userDevicePermissions.add(device.getId());
-                }
-            }
-
-            for (Permission devicePermission : dataManager.getPermissions(User.class, Device.class)) {
-                getDevicePermissions(devicePermission.getOwnerId()).add(devicePermission.getPropertyId());
-            }
-
-            groupDevices.clear();
-            for (long groupId : Context.getGroupsManager().getAllItems()) {
-                for (Device device : groupTree.getDevices(groupId)) {
-                    getGroupDevices(groupId).add(device.getId());
-                }
-            }
-
+            // Built off to the side, readers keep using previous index until it is published
+            updatePermissionIndex(PermissionIndex.build(
+                    Context.getGroupsManager().getItems(Context.getGroupsManager().getAllItems()),
+                    Context.getDeviceManager().getAllDevices(),
+                    dataManager.getPermissions(User.class, Group.class),
+                    dataManager.getPermissions(User.class, Device.class)));
         } catch (SQLException | ClassNotFoundException error) {
             Log.warning(error);
         }
-
-        deviceUsers.clear();
-        for (Map.Entry<Long, Set<Long>> entry : devicePermissions.entrySet()) {
-            for (long deviceId : entry.getValue()) {
-                getDeviceUsers(deviceId).add(entry.getKey());
-            }
-        }
     }
 
     public boolean isAdmin(long userId) {
@@ -336,6 +304,42 @@ public class PermissionsManager {
         Context.getAttributesManager().refreshExtendedPermissions();
     }
 
+    private ExtendedObjectManager<? extends BaseModel> getExtendedManager(Class<?> clazz) {
+        if (clazz.equals(Geofence.class)) {
+            return Context.getGeofenceManager();
+        } else if (clazz.equals(Driver.class)) {
+            return Context.getDriversManager();
+        } else if (clazz.equals(Attribute.class)) {
+            return Context.getAttributesManager();
+        }
+        return null;
+    }
+
+    private synchronized void linkUserPermission(Permission permission, boolean link) {
+        if (permission.getPropertyClass().equals(Device.class)) {
+            updatePermissionIndex(permissionIndex.withDevicePermission(
+                    permission.getOwnerId(), permission.getPropertyId(), link));
+        } else {
+            updatePermissionIndex(permissionIndex.withGroupPermission(
+                    permission.getOwnerId(), permission.getPropertyId(), link));
+        }
+    }
+
+    public void refreshPermissions(Permission permission, boolean link) {
+        Class<?> ownerClass = permission.getOwnerClass();
+        Class<?> propertyClass = permission.getPropertyClass();
+        if (ownerClass.equals(User.class)
+                && (propertyClass.equals(Device.class) || propertyClass.equals(Group.class))) {
+            // Extended permissions belong to devices and groups, user links do not change them
+            linkUserPermission(permission, link);
+        } else if ((ownerClass.equals(Device.class) || ownerClass.equals(Group.class))
+                && getExtendedManager(propertyClass) != null) {
+            getExtendedManager(propertyClass).linkExtendedPermission(permission, link);
+        } else {
+            refreshPermissions(permission);
+        }
+    }
+
     public void refreshPermissions(Permission permission) {
         if (permission.getOwnerClass().equals(User.class)) {
             if (permission.getPropertyClass().equals(Device.class)
@@ -371,6 +375,7 @@ public class PermissionsManager {
     public void updateServer(Server server) throws SQLException {
         dataManager.updateObject(server);
         this.server = server;
+        invalidateServerAttributes();
     }
 
     public User login(String email, String password) throws SQLException {
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.traccar.helper.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+public class PositionJournal {
+
+    public static final String FSYNC_ALWAYS = "always";
+    public static final String FSYNC_INTERVAL = "interval";
+    public static final String FSYNC_NONE = "none";
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String QUARANTINE_FILE = "quarantine";
+
+    private static final int HEADER_SIZE = 8;
+
+    private final File directory;
+    private final int segmentSize;
+    private final String fsyncPolicy;
+    private final int maxSegments;
+
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+
+    private long writeSegment;
+    private int writeOffset;
+
+    private long readSegment;
+    private int readOffset;
+
+    private long checkpointSegment;
+    private int checkpointOffset;
+
+    private Timer timer;
+
+    public PositionJournal(
+            File directory, int segmentSize, String fsyncPolicy, long fsyncInterval, int maxSegments)
+            throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.maxSegments = Math.max(maxSegments, 2);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create journal directory " + directory);
+        }
+
+        recover();
+
+        if (fsyncPolicy.equals(FSYNC_INTERVAL) && fsyncInterval > 0) {
+            timer = new Timer("position-journal", true);
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    force();
+                }
+            }, fsyncInterval, fsyncInterval);
+        }
+    }
+
+    private File getSegmentFile(long sequence) {
+        return new File(directory, String.format("%020d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    private MappedByteBuffer mapSegment(long sequence) throws IOException {
+        File file = getSegmentFile(sequence);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            long size = file.length() > 0 ? file.length() : segmentSize;
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void recover() throws IOException {
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    long sequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(sequence, mapSegment(sequence));
+                }
+            }
+        }
+
+        File checkpointFile = new File(directory, CHECKPOINT_FILE);
+        if (checkpointFile.length() >= 12) {
+            try (RandomAccessFile file = new RandomAccessFile(checkpointFile, "r")) {
+                checkpointSegment = file.readLong();
+                checkpointOffset = file.readInt();
+            }
+        } else if (!segments.isEmpty()) {
+            checkpointSegment = segments.firstKey();
+        }
+
+        while (!segments.isEmpty() && segments.firstKey() < checkpointSegment) {
+            deleteSegment(segments.firstKey());
+        }
+        if (!segments.isEmpty() && !segments.containsKey(checkpointSegment)) {
+            checkpointSegment = segments.firstKey();
+            checkpointOffset = 0;
+        }
+
+        if (segments.isEmpty()) {
+            writeSegment = Math.max(checkpointSegment, 1);
+            segments.put(writeSegment, mapSegment(writeSegment));
+            if (checkpointSegment != writeSegment) {
+                checkpointSegment = writeSegment;
+                checkpointOffset = 0;
+            }
+        } else {
+            writeSegment = segments.lastKey();
+        }
+
+        // Find end of valid data, anything after a torn record is discarded
+        MappedByteBuffer buffer = segments.get(writeSegment);
+        int offset = writeSegment == checkpointSegment ? checkpointOffset : 0;
+        byte[] data = readRecord(buffer, offset);
+        while (data != null) {
+            offset += HEADER_SIZE + data.length;
+            data = readRecord(buffer, offset);
+        }
+        writeOffset = offset;
+
+        readSegment = checkpointSegment;
+        readOffset = checkpointOffset;
+    }
+
+    private static byte[] readRecord(MappedByteBuffer buffer, int offset) {
+        if (offset + HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = buffer.get(offset + HEADER_SIZE + i);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+            return null;
+        }
+        return data;
+    }
+
+    private void deleteSegment(long sequence) {
+        segments.remove(sequence);
+        if (!getSegmentFile(sequence).delete()) {
+            Log.warning("Failed to delete journal segment " + sequence);
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (!fsyncPolicy.equals(FSYNC_NONE)) {
+            segments.get(writeSegment).force();
+        }
+        writeSegment += 1;
+        writeOffset = 0;
+        segments.put(writeSegment, mapSegment(writeSegment));
+
+        while (segments.size() > maxSegments) {
+            long oldest = segments.firstKey();
+            Log.warning("Journal retention exceeded, dropping segment " + oldest);
+            deleteSegment(oldest);
+            if (checkpointSegment <= oldest) {
+                checkpointSegment = segments.firstKey();
+                checkpointOffset = 0;
+                saveCheckpoint();
+            }
+            if (readSegment <= oldest) {
+                readSegment = checkpointSegment;
+                readOffset = checkpointOffset;
+            }
+        }
+    }
+
+    public synchronized boolean append(byte[] data) throws IOException {
+        if (data.length == 0 || data.length + HEADER_SIZE > segmentSize) {
+            return false;
+        }
+        MappedByteBuffer buffer = segments.get(writeSegment);
+        if (writeOffset + HEADER_SIZE + data.length > buffer.capacity()) {
+            rotate();
+            buffer = segments.get(writeSegment);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        for (int i = 0; i < data.length; i++) {
+            buffer.put(writeOffset + HEADER_SIZE + i, data[i]);
+        }
+        buffer.putInt(writeOffset + 4, (int) crc.getValue());
+        // Length is written last, it marks the record as complete
+        buffer.putInt(writeOffset, data.length);
+        writeOffset += HEADER_SIZE + data.length;
+
+        if (fsyncPolicy.equals(FSYNC_ALWAYS)) {
+            buffer.force();
+        }
+        return true;
+    }
+
+    public synchronized List<byte[]> read(int limit) {
+        List<byte[]> result = new ArrayList<>();
+        while (result.size() < limit) {
+            byte[] data = readRecord(segments.get(readSegment), readOffset);
+            if (data == null) {
+                if (readSegment < writeSegment) {
+                    readSegment = segments.higherKey(readSegment);
+                    readOffset = 0;
+                    continue;
+                }
+                break;
+            }
+            result.add(data);
+            readOffset += HEADER_SIZE + data.length;
+        }
+        return result;
+    }
+
+    public synchronized void commit() throws IOException {
+        checkpointSegment = readSegment;
+        checkpointOffset = readOffset;
+        saveCheckpoint();
+        while (segments.firstKey() < checkpointSegment) {
+            deleteSegment(segments.firstKey());
+        }
+    }
+
+    public synchronized void rewind() {
+        readSegment = checkpointSegment;
+        readOffset = checkpointOffset;
+    }
+
+    /**
+     * Keeps records the database rejects, one per line, for manual recovery.
+     */
+    public synchronized void quarantine(byte[] data) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(new File(directory, QUARANTINE_FILE), true)) {
+            output.write(data);
+            output.write('\n');
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return readSegment == writeSegment && readOffset == writeOffset;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Approximate size in bytes of records not yet committed by replay.
+     */
+    public synchronized long getBacklog() {
+        if (checkpointSegment == writeSegment) {
+            return writeOffset - checkpointOffset;
+        }
+        return (long) (writeSegment - checkpointSegment) * segmentSize - checkpointOffset + writeOffset;
+    }
+
+    private void saveCheckpoint() throws IOException {
+        File temporary = new File(directory, CHECKPOINT_FILE + ".tmp");
+        try (RandomAccessFile file = new RandomAccessFile(temporary, "rw")) {
+            file.setLength(0);
+            file.writeLong(checkpointSegment);
+            file.writeInt(checkpointOffset);
+            if (!fsyncPolicy.equals(FSYNC_NONE)) {
+                file.getFD().sync();
+            }
+        }
+        File checkpointFile = new File(directory, CHECKPOINT_FILE);
+        if (!temporary.renameTo(checkpointFile)) {
+            throw new IOException("Failed to update journal checkpoint");
+        }
+    }
+
+    public synchronized void force() {
+        segments.get(writeSegment).force();
+    }
+
+    public synchronized void close() {
+        if (timer != null) {
+            timer.cancel();
+        }
+        force();
+    }
+
+}
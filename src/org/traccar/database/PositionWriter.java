@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.traccar.BackpressureManager;
+import org.traccar.Context;
+import org.traccar.helper.Log;
+import org.traccar.model.Position;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PositionWriter {
+
+    private static final long STOP_TIMEOUT = 30000;
+    private static final long MIN_RETRY_DELAY = 1000;
+    private static final long MAX_RETRY_DELAY = 10000;
+
+    private final DataManager dataManager;
+    private final int batchSize;
+    private final long flushDelay;
+    private final int queueCapacity;
+
+    private final Worker[] workers;
+
+    // Positions queued or being stored by any worker
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private volatile boolean running = true;
+
+    private final AtomicLong storedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+
+    public PositionWriter(DataManager dataManager, int threads, int batchSize, long flushDelay, int queueCapacity) {
+        this.dataManager = dataManager;
+        this.batchSize = batchSize > 0 ? batchSize : 1;
+        this.flushDelay = flushDelay;
+        this.queueCapacity = queueCapacity;
+
+        threads = threads > 0 ? threads : 1;
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+            Thread thread = new Thread(workers[i], "position-writer-" + i);
+            thread.setDaemon(true);
+            workers[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    public boolean write(Position position) {
+        if (!running) {
+            return false;
+        }
+        // With backpressure the capacity is a soft limit, channels are paused instead of storing on the caller thread
+        BackpressureManager backpressureManager = Context.getBackpressureManager();
+        if (backpressureManager == null && queueSize.get() >= queueCapacity) {
+            return false;
+        }
+        dataManager.tryAllocatePositionId(position);
+        int size = queueSize.incrementAndGet();
+        // Same device always goes to the same worker to preserve order
+        workers[(int) (Math.abs(position.getDeviceId()) % workers.length)].queue.add(position);
+        if (backpressureManager != null) {
+            backpressureManager.checkQueue(size);
+        }
+        return true;
+    }
+
+    private void checkBackpressure(int size) {
+        BackpressureManager backpressureManager = Context.getBackpressureManager();
+        if (backpressureManager != null) {
+            backpressureManager.checkQueue(size);
+        }
+    }
+
+    public void stop() {
+        running = false;
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(STOP_TIMEOUT);
+            } catch (InterruptedException error) {
+                Log.warning(error);
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    public long getStoredCount() {
+        return storedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    private List<Position> store(List<Position> batch) throws SQLException {
+        try {
+            dataManager.addPositions(batch);
+            return Collections.emptyList();
+        } catch (SQLException error) {
+            // Ids are explicit, so rows stored by an earlier attempt are skipped
+            Log.warning(error);
+            return dataManager.addPositionsSeparately(batch);
+        }
+    }
+
+    private void flush(List<Position> batch) {
+        batchCount.incrementAndGet();
+        long retryDelay = MIN_RETRY_DELAY;
+        List<Position> rejected;
+        while (true) {
+            try {
+                rejected = store(batch);
+                storedCount.addAndGet(batch.size() - rejected.size());
+                failedCount.addAndGet(rejected.size());
+                break;
+            } catch (SQLException error) {
+                // Database is not reachable, keep the batch until it is back unless the writer is stopping
+                Log.warning(error);
+                if (!running) {
+                    failedCount.addAndGet(batch.size());
+                    return;
+                }
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException e) {
+                    Log.warning(e);
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+            }
+        }
+
+        DeviceManager deviceManager = Context.getDeviceManager();
+        if (deviceManager != null) {
+            for (Position position : batch) {
+                if (rejected.contains(position)) {
+                    continue;
+                }
+                try {
+                    deviceManager.updateStoredPosition(position);
+                } catch (SQLException error) {
+                    Log.warning(error);
+                }
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        private final BlockingQueue<Position> queue = new LinkedBlockingQueue<>();
+        private Thread thread;
+
+        private void collect(List<Position> batch) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + flushDelay;
+            while (batch.size() < batchSize) {
+                queue.drainTo(batch, batchSize - batch.size());
+                long remaining = deadline - System.currentTimeMillis();
+                if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                    break;
+                }
+                Position position = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                if (position == null) {
+                    break;
+                }
+                batch.add(position);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Position> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Position position = queue.poll(Math.max(flushDelay, 1), TimeUnit.MILLISECONDS);
+                    if (position != null) {
+                        batch.add(position);
+                        collect(batch);
+                    }
+                } catch (InterruptedException error) {
+                    Log.warning(error);
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    checkBackpressure(queueSize.addAndGet(-batch.size()));
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+
+    }
+
+}
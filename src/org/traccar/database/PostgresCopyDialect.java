@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import org.postgresql.PGConnection;
+import org.traccar.Context;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams rows through COPY. It reports no generated keys, so in practice it is used for positions with the id
+ * allocator enabled, which is implied by the writer and the journal. Other inserts stay on JDBC batch.
+ */
+public class PostgresCopyDialect extends JdbcBatchDialect {
+
+    private static final Pattern PATTERN = Pattern.compile(
+            "INSERT\\s+INTO\\s+(\\S+)\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    private static List<String> split(String list) {
+        List<String> result = new ArrayList<>();
+        for (String item : list.split(",")) {
+            result.add(item.trim());
+        }
+        return result;
+    }
+
+    private static void appendEscaped(StringBuilder data, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    data.append("\\\\");
+                    break;
+                case '\t':
+                    data.append("\\t");
+                    break;
+                case '\n':
+                    data.append("\\n");
+                    break;
+                case '\r':
+                    data.append("\\r");
+                    break;
+                default:
+                    data.append(c);
+                    break;
+            }
+        }
+    }
+
+    private static void appendValue(StringBuilder data, Object value) {
+        if (value == null) {
+            data.append("\\N");
+        } else if (value instanceof Boolean || value instanceof Number) {
+            data.append(value);
+        } else if (value instanceof Date) {
+            data.append(new Timestamp(((Date) value).getTime()));
+        } else if (value instanceof byte[]) {
+            data.append("\\\\x");
+            for (byte b : (byte[]) value) {
+                data.append(String.format("%02x", b));
+            }
+        } else {
+            appendEscaped(data, value.toString());
+        }
+    }
+
+    @Override
+    public long[] insert(DataSource dataSource, String query, List<?> objects, boolean returnGeneratedKeys)
+            throws SQLException {
+
+        Matcher matcher = query != null ? PATTERN.matcher(query.trim()) : null;
+        if (returnGeneratedKeys || objects.isEmpty() || matcher == null || !matcher.matches()) {
+            return super.insert(dataSource, query, objects, returnGeneratedKeys);
+        }
+
+        List<String> columns = split(matcher.group(2));
+        List<String> names = new ArrayList<>();
+        for (String value : split(matcher.group(3))) {
+            if (!value.startsWith(":")) {
+                return super.insert(dataSource, query, objects, returnGeneratedKeys);
+            }
+            names.add(value.substring(1));
+        }
+        // Values are converted by the same binders QueryBuilder.setObject uses
+        QueryBuilder.ParameterBinder[] binders = QueryBuilder.getParameterBinders(objects.get(0).getClass(), names);
+        for (QueryBuilder.ParameterBinder binder : binders) {
+            if (binder == null) {
+                return super.insert(dataSource, query, objects, returnGeneratedKeys);
+            }
+        }
+        if (columns.size() != binders.length) {
+            return super.insert(dataSource, query, objects, returnGeneratedKeys);
+        }
+
+        boolean xml = Context.getConfig().getBoolean("database.xml");
+        StringBuilder data = new StringBuilder(objects.size() * 256);
+        try {
+            for (Object object : objects) {
+                for (int i = 0; i < binders.length; i++) {
+                    if (i > 0) {
+                        data.append('\t');
+                    }
+                    appendValue(data, binders[i].getValue(object, xml));
+                }
+                data.append('\n');
+            }
+        } catch (IllegalAccessException | InvocationTargetException | IOException error) {
+            throw new SQLException(error);
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY " + matcher.group(1) + " (" + matcher.group(2) + ") FROM STDIN",
+                    new StringReader(data.toString()));
+        } catch (IOException error) {
+            throw new SQLException(error);
+        }
+        return new long[objects.size()];
+    }
+
+}
@@ -15,7 +15,7 @@
  */
 package org.traccar.database;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.traccar.Context;
 import org.traccar.helper.Log;
 import org.traccar.model.MiscFormatter;
@@ -23,6 +23,7 @@ import org.traccar.model.Permission;
 
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.Connection;
@@ -33,17 +34,25 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class QueryBuilder {
 
-    private final Map<String, List<Integer>> indexMap = new HashMap<>();
+    private static final int MAX_CACHE_SIZE = 1000;
+
+    private static final Map<String, ParsedQuery> PARSED_QUERIES = new ConcurrentHashMap<>();
+    private static final Map<String, ResultSetProcessor[]> ROW_MAPPERS = new ConcurrentHashMap<>();
+
+    private static final int[] NO_INDEXES = new int[0];
+
+    private Map<String, int[]> indexMap;
     private Connection connection;
     private PreparedStatement statement;
     private final String query;
@@ -53,13 +62,20 @@ public final class QueryBuilder {
         this.query = query;
         this.returnGeneratedKeys = returnGeneratedKeys;
         if (query != null) {
+            ParsedQuery parsedQuery = PARSED_QUERIES.get(query);
+            if (parsedQuery == null) {
+                parsedQuery = parse(query.trim());
+                if (PARSED_QUERIES.size() < MAX_CACHE_SIZE) {
+                    PARSED_QUERIES.put(query, parsedQuery);
+                }
+            }
+            indexMap = parsedQuery.indexes;
             connection = dataSource.getConnection();
-            String parsedQuery = parse(query.trim(), indexMap);
             try {
                 if (returnGeneratedKeys) {
-                    statement = connection.prepareStatement(parsedQuery, Statement.RETURN_GENERATED_KEYS);
+                    statement = connection.prepareStatement(parsedQuery.query, Statement.RETURN_GENERATED_KEYS);
                 } else {
-                    statement = connection.prepareStatement(parsedQuery);
+                    statement = connection.prepareStatement(parsedQuery.query);
                 }
             } catch (SQLException error) {
                 connection.close();
@@ -68,7 +84,21 @@ public final class QueryBuilder {
         }
     }
 
-    private static String parse(String query, Map<String, List<Integer>> paramMap) {
+    private static final class ParsedQuery {
+
+        private final String query;
+        private final Map<String, int[]> indexes;
+
+        private ParsedQuery(String query, Map<String, int[]> indexes) {
+            this.query = query;
+            this.indexes = indexes;
+        }
+
+    }
+
+    private static ParsedQuery parse(String query) {
+
+        Map<String, List<Integer>> paramMap = new HashMap<>();
 
         int length = query.length();
         StringBuilder parsedQuery = new StringBuilder(length);
@@ -113,7 +143,7 @@ public final class QueryBuilder {
                     // Add to list
                     List<Integer> indexList = paramMap.get(name);
                     if (indexList == null) {
-                        indexList = new LinkedList<>();
+                        indexList = new ArrayList<>();
                         paramMap.put(name, indexList);
                     }
                     indexList.add(index);
@@ -125,7 +155,16 @@ public final class QueryBuilder {
             parsedQuery.append(c);
         }
 
-        return parsedQuery.toString();
+        Map<String, int[]> indexes = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : paramMap.entrySet()) {
+            int[] indexArray = new int[entry.getValue().size()];
+            for (int i = 0; i < indexArray.length; i++) {
+                indexArray[i] = entry.getValue().get(i);
+            }
+            indexes.put(entry.getKey(), indexArray);
+        }
+
+        return new ParsedQuery(parsedQuery.toString(), indexes);
     }
 
     public static QueryBuilder create(DataSource dataSource, String query) throws SQLException {
@@ -137,11 +176,13 @@ public final class QueryBuilder {
         return new QueryBuilder(dataSource, query, returnGeneratedKeys);
     }
 
-    private List<Integer> indexes(String name) {
-        name = name.toLowerCase();
-        List<Integer> result = indexMap.get(name);
+    private int[] indexes(String name) {
+        if (indexMap == null) {
+            return NO_INDEXES;
+        }
+        int[] result = indexMap.get(name.toLowerCase());
         if (result == null) {
-            result = new LinkedList<>();
+            result = NO_INDEXES;
         }
         return result;
     }
@@ -257,48 +298,175 @@ public final class QueryBuilder {
         return this;
     }
 
-    public QueryBuilder setObject(Object object) throws SQLException {
+    static final class ParameterBinder {
+
+        private static final int BOOLEAN = 0;
+        private static final int INTEGER = 1;
+        private static final int LONG = 2;
+        private static final int DOUBLE = 3;
+        private static final int STRING = 4;
+        private static final int DATE = 5;
+        private static final int BLOB = 6;
+        private static final int MAP = 7;
+        private static final int JSON = 8;
+
+        private final String name;
+        private final Method method;
+        private final int type;
+
+        private ParameterBinder(String name, Method method) {
+            this.name = name;
+            this.method = method;
+            Class<?> returnType = method.getReturnType();
+            if (returnType.equals(boolean.class)) {
+                type = BOOLEAN;
+            } else if (returnType.equals(int.class)) {
+                type = INTEGER;
+            } else if (returnType.equals(long.class)) {
+                type = LONG;
+            } else if (returnType.equals(double.class)) {
+                type = DOUBLE;
+            } else if (returnType.equals(String.class)) {
+                type = STRING;
+            } else if (returnType.equals(Date.class)) {
+                type = DATE;
+            } else if (returnType.equals(byte[].class)) {
+                type = BLOB;
+            } else if (returnType.equals(Map.class)) {
+                type = MAP;
+            } else {
+                type = JSON;
+            }
+        }
 
-        Method[] methods = object.getClass().getMethods();
-
-        for (Method method : methods) {
-            if (method.getName().startsWith("get") && method.getParameterTypes().length == 0
-                    && !method.isAnnotationPresent(QueryIgnore.class)) {
-                String name = method.getName().substring(3);
-                try {
-                    if (method.getReturnType().equals(boolean.class)) {
-                        setBoolean(name, (Boolean) method.invoke(object));
-                    } else if (method.getReturnType().equals(int.class)) {
-                        setInteger(name, (Integer) method.invoke(object));
-                    } else if (method.getReturnType().equals(long.class)) {
-                        setLong(name, (Long) method.invoke(object), name.endsWith("Id"));
-                    } else if (method.getReturnType().equals(double.class)) {
-                        setDouble(name, (Double) method.invoke(object));
-                    } else if (method.getReturnType().equals(String.class)) {
-                        setString(name, (String) method.invoke(object));
-                    } else if (method.getReturnType().equals(Date.class)) {
-                        setDate(name, (Date) method.invoke(object));
-                    } else if (method.getReturnType().equals(byte[].class)) {
-                        setBlob(name, (byte[]) method.invoke(object));
-                    } else {
-                        if (method.getReturnType().equals(Map.class)
-                                && Context.getConfig().getBoolean("database.xml")) {
-                            setString(name, MiscFormatter.toXmlString((Map) method.invoke(object)));
-                        } else {
-                            setString(name, Context.getObjectMapper().writeValueAsString(method.invoke(object)));
-                        }
+        /**
+         * Returns property value converted for storage. Zero ids become null, maps and other objects become strings.
+         */
+        Object getValue(Object object, boolean xml)
+                throws IllegalAccessException, InvocationTargetException, IOException {
+            Object value = method.invoke(object);
+            switch (type) {
+                case LONG:
+                    return name.endsWith("Id") && (Long) value == 0 ? null : value;
+                case MAP:
+                    if (xml) {
+                        return MiscFormatter.toXmlString((Map) value);
                     }
-                } catch (IllegalAccessException | InvocationTargetException | JsonProcessingException error) {
-                    Log.warning(error);
+                    return writeJson(value);
+                case JSON:
+                    return writeJson(value);
+                default:
+                    return value;
+            }
+        }
+
+    }
+
+    private static final Map<Class<?>, ParameterBinder[]> PARAMETER_BINDERS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<StringWriter> JSON_WRITER = new ThreadLocal<StringWriter>() {
+        @Override
+        protected StringWriter initialValue() {
+            return new StringWriter(1024);
+        }
+    };
+
+    private static final int MAX_JSON_BUFFER = 64 * 1024;
+
+    private static ParameterBinder[] getParameterBinders(Class<?> clazz) {
+        ParameterBinder[] binders = PARAMETER_BINDERS.get(clazz);
+        if (binders == null) {
+            List<ParameterBinder> list = new ArrayList<>();
+            for (Method method : clazz.getMethods()) {
+                if (method.getName().startsWith("get") && method.getParameterTypes().length == 0
+                        && !method.isAnnotationPresent(QueryIgnore.class)) {
+                    list.add(new ParameterBinder(method.getName().substring(3), method));
                 }
             }
+            binders = list.toArray(new ParameterBinder[list.size()]);
+            PARAMETER_BINDERS.put(clazz, binders);
+        }
+        return binders;
+    }
+
+    /**
+     * Returns binders for given parameter names in the same order, with null for names the class does not provide.
+     */
+    static ParameterBinder[] getParameterBinders(Class<?> clazz, List<String> names) {
+        ParameterBinder[] binders = getParameterBinders(clazz);
+        ParameterBinder[] result = new ParameterBinder[names.size()];
+        for (int i = 0; i < result.length; i++) {
+            for (ParameterBinder binder : binders) {
+                if (binder.name.equalsIgnoreCase(names.get(i))) {
+                    result[i] = binder;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String writeJson(Object value) throws IOException {
+        StringWriter writer = JSON_WRITER.get();
+        StringBuffer buffer = writer.getBuffer();
+        buffer.setLength(0);
+        try (JsonGenerator generator = Context.getObjectMapper().getFactory().createGenerator(writer)) {
+            Context.getObjectMapper().writeValue(generator, value);
+        }
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_JSON_BUFFER) {
+            JSON_WRITER.remove();
+        }
+        return result;
+    }
+
+    public QueryBuilder setObject(Object object) throws SQLException {
+
+        Boolean xml = null;
+
+        for (ParameterBinder binder : getParameterBinders(object.getClass())) {
+            if (indexes(binder.name).length == 0) {
+                continue;
+            }
+            String name = binder.name;
+            if (binder.type == ParameterBinder.MAP && xml == null) {
+                xml = Context.getConfig().getBoolean("database.xml");
+            }
+            try {
+                Object value = binder.getValue(object, xml != null && xml);
+                switch (binder.type) {
+                    case ParameterBinder.BOOLEAN:
+                        setBoolean(name, (Boolean) value);
+                        break;
+                    case ParameterBinder.INTEGER:
+                        setInteger(name, (Integer) value);
+                        break;
+                    case ParameterBinder.LONG:
+                        setLong(name, value != null ? (Long) value : 0, value == null);
+                        break;
+                    case ParameterBinder.DOUBLE:
+                        setDouble(name, (Double) value);
+                        break;
+                    case ParameterBinder.DATE:
+                        setDate(name, (Date) value);
+                        break;
+                    case ParameterBinder.BLOB:
+                        setBlob(name, (byte[]) value);
+                        break;
+                    default:
+                        setString(name, (String) value);
+                        break;
+                }
+            } catch (IllegalAccessException | InvocationTargetException | IOException error) {
+                Log.warning(error);
+            }
         }
 
         return this;
     }
 
-    private interface ResultSetProcessor<T> {
-        void process(T object, ResultSet resultSet) throws SQLException;
+    private interface ResultSetProcessor {
+        void process(Object object, ResultSet resultSet) throws SQLException;
     }
 
     public <T> T executeQuerySingle(Class<T> clazz) throws SQLException {
@@ -310,71 +478,70 @@ public final class QueryBuilder {
         }
     }
 
-    private <T> void addProcessors(
-            List<ResultSetProcessor<T>> processors,
-            final Class<?> parameterType, final Method method, final String name) {
+    private static ResultSetProcessor createProcessor(
+            final Class<?> parameterType, final Method method, final int index) {
 
         if (parameterType.equals(boolean.class)) {
-            processors.add(new ResultSetProcessor<T>() {
+            return new ResultSetProcessor() {
                 @Override
-                public void process(T object, ResultSet resultSet) throws SQLException {
+                public void process(Object object, ResultSet resultSet) throws SQLException {
                     try {
-                        method.invoke(object, resultSet.getBoolean(name));
+                        method.invoke(object, resultSet.getBoolean(index));
                     } catch (IllegalAccessException | InvocationTargetException error) {
                         Log.warning(error);
                     }
                 }
-            });
+            };
         } else if (parameterType.equals(int.class)) {
-            processors.add(new ResultSetProcessor<T>() {
+            return new ResultSetProcessor() {
                 @Override
-                public void process(T object, ResultSet resultSet) throws SQLException {
+                public void process(Object object, ResultSet resultSet) throws SQLException {
                     try {
-                        method.invoke(object, resultSet.getInt(name));
+                        method.invoke(object, resultSet.getInt(index));
                     } catch (IllegalAccessException | InvocationTargetException error) {
                         Log.warning(error);
                     }
                 }
-            });
+            };
         } else if (parameterType.equals(long.class)) {
-            processors.add(new ResultSetProcessor<T>() {
+            return new ResultSetProcessor() {
                 @Override
-                public void process(T object, ResultSet resultSet) throws SQLException {
+                public void process(Object object, ResultSet resultSet) throws SQLException {
                     try {
-                        method.invoke(object, resultSet.getLong(name));
+                        method.invoke(object, resultSet.getLong(index));
                     } catch (IllegalAccessException | InvocationTargetException error) {
                         Log.warning(error);
                     }
                 }
-            });
+            };
         } else if (parameterType.equals(double.class)) {
-            processors.add(new ResultSetProcessor<T>() {
+            return new ResultSetProcessor() {
                 @Override
-                public void process(T object, ResultSet resultSet) throws SQLException {
+                public void process(Object object, ResultSet resultSet) throws SQLException {
                     try {
-                        method.invoke(object, resultSet.getDouble(name));
+                        method.invoke(object, resultSet.getDouble(index));
                     } catch (IllegalAccessException | InvocationTargetException error) {
                         Log.warning(error);
                     }
                 }
-            });
+            };
         } else if (parameterType.equals(String.class)) {
-            processors.add(new ResultSetProcessor<T>() {
+            return new ResultSetProcessor() {
                 @Override
-                public void process(T object, ResultSet resultSet) throws SQLException {
+                public void process(Object object, ResultSet resultSet) throws SQLException {
                     try {
-                        method.invoke(object, resultSet.getString(name));
+                        method.invoke(object, resultSet.getString(index));
                     } catch (IllegalAccessException | InvocationTargetException error) {
                         Log.warning(error);
                     }
                 }
-            });
+            };
         } else if (parameterType.equals(Date.class)) {
-            processors.add(new ResultSetProcessor<T>() {
+            return new ResultSetProcessor() {
                 @Override
-                public void process(T object, ResultSet resultSet) throws SQLException {
+                public void process(Object object, ResultSet resultSet) throws SQLException {
                     try {
-                        Timestamp timestamp = resultSet.getTimestamp(name);
+                        Timestamp timestamp = resultSet.getTimestamp(index);
                         if (timestamp != null) {
                             method.invoke(object, new Date(timestamp.getTime()));
                         }
@@ -382,23 +549,37 @@ public final class QueryBuilder {
                         Log.warning(error);
                     }
                 }
-            });
+            };
         } else if (parameterType.equals(byte[].class)) {
-            processors.add(new ResultSetProcessor<T>() {
+            return new ResultSetProcessor() {
                 @Override
-                public void process(T object, ResultSet resultSet) throws SQLException {
+                public void process(Object object, ResultSet resultSet) throws SQLException {
                     try {
-                        method.invoke(object, resultSet.getBytes(name));
+                        method.invoke(object, resultSet.getBytes(index));
                     } catch (IllegalAccessException | InvocationTargetException error) {
                         Log.warning(error);
                     }
                 }
-            });
+            };
+        } else if (parameterType.equals(Map.class)) {
+            return new ResultSetProcessor() {
+                @Override
+                public void process(Object object, ResultSet resultSet) throws SQLException {
+                    String value = resultSet.getString(index);
+                    if (value != null && !value.isEmpty()) {
+                        try {
+                            method.invoke(object, new LazyAttributes(value));
+                        } catch (IllegalAccessException | InvocationTargetException error) {
+                            Log.warning(error);
+                        }
+                    }
+                }
+            };
         } else {
-            processors.add(new ResultSetProcessor<T>() {
+            return new ResultSetProcessor() {
                 @Override
-                public void process(T object, ResultSet resultSet) throws SQLException {
-                    String value = resultSet.getString(name);
+                public void process(Object object, ResultSet resultSet) throws SQLException {
+                    String value = resultSet.getString(index);
                     if (value != null && !value.isEmpty()) {
                         try {
                             method.invoke(object, Context.getObjectMapper().readValue(value, parameterType));
@@ -407,12 +588,46 @@ public final class QueryBuilder {
                         }
                     }
                 }
-            });
+            };
+        }
+    }
+
+    private static ResultSetProcessor[] getRowMapper(
+            Class<?> clazz, ResultSetMetaData resultMetaData) throws SQLException {
+
+        int columnCount = resultMetaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        StringBuilder key = new StringBuilder(clazz.getName());
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = resultMetaData.getColumnLabel(i + 1);
+            key.append(':').append(labels[i]);
+        }
+
+        ResultSetProcessor[] mapper = ROW_MAPPERS.get(key.toString());
+        if (mapper == null) {
+            List<ResultSetProcessor> processors = new ArrayList<>();
+            for (Method method : clazz.getMethods()) {
+                if (method.getName().startsWith("set") && method.getParameterTypes().length == 1
+                        && !method.isAnnotationPresent(QueryIgnore.class)) {
+                    String name = method.getName().substring(3);
+                    for (int i = 0; i < columnCount; i++) {
+                        if (name.equalsIgnoreCase(labels[i])) {
+                            processors.add(createProcessor(method.getParameterTypes()[0], method, i + 1));
+                            break;
+                        }
+                    }
+                }
+            }
+            mapper = processors.toArray(new ResultSetProcessor[processors.size()]);
+            if (ROW_MAPPERS.size() < MAX_CACHE_SIZE) {
+                ROW_MAPPERS.put(key.toString(), mapper);
+            }
         }
+        return mapper;
     }
 
     public <T> Collection<T> executeQuery(Class<T> clazz) throws SQLException {
-        List<T> result = new LinkedList<>();
+        List<T> result = new ArrayList<>();
 
         if (query != null) {
 
@@ -420,38 +635,12 @@ public final class QueryBuilder {
 
                 try (ResultSet resultSet = statement.executeQuery()) {
 
-                    ResultSetMetaData resultMetaData = resultSet.getMetaData();
-
-                    List<ResultSetProcessor<T>> processors = new LinkedList<>();
-
-                    Method[] methods = clazz.getMethods();
-
-                    for (final Method method : methods) {
-                        if (method.getName().startsWith("set") && method.getParameterTypes().length == 1
-                                && !method.isAnnotationPresent(QueryIgnore.class)) {
-
-                            final String name = method.getName().substring(3);
-
-                            // Check if column exists
-                            boolean column = false;
-                            for (int i = 1; i <= resultMetaData.getColumnCount(); i++) {
-                                if (name.equalsIgnoreCase(resultMetaData.getColumnLabel(i))) {
-                                    column = true;
-                                    break;
-                                }
-                            }
-                            if (!column) {
-                                continue;
-                            }
-
-                            addProcessors(processors, method.getParameterTypes()[0], method, name);
-                        }
-                    }
+                    ResultSetProcessor[] processors = getRowMapper(clazz, resultSet.getMetaData());
 
                     while (resultSet.next()) {
                         try {
                             T object = clazz.newInstance();
-                            for (ResultSetProcessor<T> processor : processors) {
+                            for (ResultSetProcessor processor : processors) {
                                 processor.process(object, resultSet);
                             }
                             result.add(object);
@@ -489,8 +678,58 @@ public final class QueryBuilder {
         return 0;
     }
 
+    public QueryBuilder addBatch() throws SQLException {
+        if (query != null) {
+            try {
+                statement.addBatch();
+            } catch (SQLException error) {
+                statement.close();
+                connection.close();
+                throw error;
+            }
+        }
+        return this;
+    }
+
+    public long[] executeBatch() throws SQLException {
+
+        if (query != null) {
+            try {
+                connection.setAutoCommit(false);
+                int[] counts = statement.executeBatch();
+                long[] result = new long[counts.length];
+                if (returnGeneratedKeys) {
+                    List<Long> keys = new ArrayList<>(counts.length);
+                    try (ResultSet resultSet = statement.getGeneratedKeys()) {
+                        while (resultSet.next()) {
+                            keys.add(resultSet.getLong(1));
+                        }
+                    }
+                    if (keys.size() != result.length) {
+                        // Some drivers only return the last key for a batch, rows can not be matched to keys
+                        connection.rollback();
+                        return new long[0];
+                    }
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = keys.get(i);
+                    }
+                }
+                connection.commit();
+                return result;
+            } catch (SQLException error) {
+                connection.rollback();
+                throw error;
+            } finally {
+                connection.setAutoCommit(true);
+                statement.close();
+                connection.close();
+            }
+        }
+        return new long[0];
+    }
+
     public Collection<Permission> executePermissionsQuery() throws SQLException, ClassNotFoundException {
-        List<Permission> result = new LinkedList<>();
+        List<Permission> result = new ArrayList<>();
         if (query != null) {
             try {
                 try (ResultSet resultSet = statement.executeQuery()) {
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.database;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class ResolvedAttributes {
+
+    public static final class Value {
+
+        public static final Value NULL = new Value(null);
+
+        private final String string;
+        private final boolean booleanValue;
+        private final boolean numeric;
+        private final double doubleValue;
+        private final boolean integral;
+        private final long longValue;
+
+        public Value(String string) {
+            this.string = string;
+            booleanValue = Boolean.parseBoolean(string);
+
+            double parsedDouble = 0;
+            boolean parsedNumeric = false;
+            long parsedLong = 0;
+            boolean parsedIntegral = false;
+            if (string != null) {
+                try {
+                    parsedDouble = Double.parseDouble(string);
+                    parsedNumeric = true;
+                    parsedLong = Long.parseLong(string);
+                    parsedIntegral = true;
+                } catch (NumberFormatException error) {
+                    // Invalid values are parsed again on access to report the original error
+                }
+            }
+            doubleValue = parsedDouble;
+            numeric = parsedNumeric;
+            longValue = parsedLong;
+            integral = parsedIntegral;
+        }
+
+        public boolean isNull() {
+            return string == null;
+        }
+
+        public String getString() {
+            return string;
+        }
+
+        public boolean getBoolean() {
+            return booleanValue;
+        }
+
+        public double getDouble() {
+            return numeric ? doubleValue : Double.parseDouble(string);
+        }
+
+        public long getLong() {
+            return integral ? longValue : Long.parseLong(string);
+        }
+
+        public int getInteger() {
+            if (integral && longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+                return (int) longValue;
+            }
+            return Integer.parseInt(string);
+        }
+
+    }
+
+    private final ConcurrentMap<Long, Map<String, Value>> serverValues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Map<String, Value>> configValues = new ConcurrentHashMap<>();
+
+    /**
+     * Values map has to be obtained before reading the source objects, so that concurrent invalidation drops it.
+     */
+    public Map<String, Value> getValues(long deviceId, boolean lookupConfig) {
+        ConcurrentMap<Long, Map<String, Value>> devices = lookupConfig ? configValues : serverValues;
+        Map<String, Value> values = devices.get(deviceId);
+        if (values == null) {
+            values = new ConcurrentHashMap<>();
+            Map<String, Value> existing = devices.putIfAbsent(deviceId, values);
+            if (existing != null) {
+                values = existing;
+            }
+        }
+        return values;
+    }
+
+    public void invalidate(long deviceId) {
+        serverValues.remove(deviceId);
+        configValues.remove(deviceId);
+    }
+
+    public void invalidateAll() {
+        serverValues.clear();
+        configValues.clear();
+    }
+
+}
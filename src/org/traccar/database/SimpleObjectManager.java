@@ -18,12 +18,13 @@ package org.traccar.database;
 
 import java.sql.SQLException;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.traccar.Context;
+import org.traccar.helper.ImmutableLongSet;
 import org.traccar.helper.Log;
+import org.traccar.helper.LongObjectMap;
+import org.traccar.helper.LongSetMap;
 import org.traccar.model.BaseModel;
 import org.traccar.model.Permission;
 import org.traccar.model.User;
@@ -31,18 +32,18 @@ import org.traccar.model.User;
 public abstract class SimpleObjectManager<T extends BaseModel> extends BaseObjectManager<T>
         implements ManagableObjects {
 
-    private Map<Long, Set<Long>> userItems;
+    // Published sets are immutable, callers can keep or iterate them without copying
+    private volatile LongObjectMap<ImmutableLongSet> userItems;
 
     protected SimpleObjectManager(DataManager dataManager, Class<T> baseClass) {
         super(dataManager, baseClass);
     }
 
     @Override
-    public final Set<Long> getUserItems(long userId) {
-        if (!userItems.containsKey(userId)) {
-            userItems.put(userId, new HashSet<Long>());
-        }
-        return userItems.get(userId);
+    public final ImmutableLongSet getUserItems(long userId) {
+        LongObjectMap<ImmutableLongSet> items = userItems;
+        ImmutableLongSet result = items != null ? items.get(userId) : null;
+        return result != null ? result : ImmutableLongSet.EMPTY;
     }
 
     @Override
@@ -65,17 +66,23 @@ public abstract class SimpleObjectManager<T extends BaseModel> extends BaseObjec
         refreshUserItems();
     }
 
+    @Override
+    public boolean refreshChanges() {
+        boolean itemsChanged = super.refreshChanges();
+        if (itemsChanged) {
+            refreshUserItems();
+        }
+        return itemsChanged;
+    }
+
     public final void refreshUserItems() {
         if (getDataManager() != null) {
             try {
-                if (userItems != null) {
-                    userItems.clear();
-                } else {
-                    userItems = new ConcurrentHashMap<>();
-                }
+                LongSetMap items = new LongSetMap();
                 for (Permission permission : getDataManager().getPermissions(User.class, getBaseClass())) {
-                    getUserItems(permission.getOwnerId()).add(permission.getPropertyId());
+                    items.add(permission.getOwnerId(), permission.getPropertyId());
                 }
+                userItems = items.freeze();
             } catch (SQLException | ClassNotFoundException error) {
                 Log.warning(error);
             }
@@ -19,13 +19,15 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.traccar.BaseEventHandler;
+import org.traccar.EventContext;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
 
 public class AlertEventHandler extends BaseEventHandler {
 
     @Override
-    protected Map<Event, Position> analyzePosition(Position position) {
+    protected Map<Event, Position> analyzePosition(EventContext context) {
+        Position position = context.getPosition();
         Object alarm = position.getAttributes().get(Position.KEY_ALARM);
         if (alarm != null) {
             Event event = new Event(Event.TYPE_ALARM, position.getDeviceId(), position.getId());
@@ -19,13 +19,15 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.traccar.BaseEventHandler;
+import org.traccar.EventContext;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
 
 public class CommandResultEventHandler extends BaseEventHandler {
 
     @Override
-    protected Map<Event, Position> analyzePosition(Position position) {
+    protected Map<Event, Position> analyzePosition(EventContext context) {
+        Position position = context.getPosition();
         Object commandResult = position.getAttributes().get(Position.KEY_RESULT);
         if (commandResult != null) {
             Event event = new Event(Event.TYPE_COMMAND_RESULT, position.getDeviceId(), position.getId());
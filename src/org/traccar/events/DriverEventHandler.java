@@ -20,21 +20,22 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.traccar.BaseEventHandler;
-import org.traccar.Context;
+import org.traccar.EventContext;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
 
 public class DriverEventHandler extends BaseEventHandler {
 
     @Override
-    protected Map<Event, Position> analyzePosition(Position position) {
-        if (!Context.getIdentityManager().isLatestPosition(position)) {
+    protected Map<Event, Position> analyzePosition(EventContext context) {
+        Position position = context.getPosition();
+        if (!context.isLatestPosition()) {
             return null;
         }
         String driverUniqueId = position.getString(Position.KEY_DRIVER_UNIQUE_ID);
         if (driverUniqueId != null) {
             String oldDriverUniqueId = null;
-            Position lastPosition = Context.getIdentityManager().getLastPosition(position.getDeviceId());
+            Position lastPosition = context.getLastPosition();
             if (lastPosition != null) {
                 oldDriverUniqueId = lastPosition.getString(Position.KEY_DRIVER_UNIQUE_ID);
             }
@@ -17,6 +17,7 @@ package org.traccar.events;
 
 import org.traccar.BaseEventHandler;
 import org.traccar.Context;
+import org.traccar.EventContext;
 import org.traccar.model.Device;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
@@ -29,13 +30,14 @@ public class FuelDropEventHandler extends BaseEventHandler {
     public static final String ATTRIBUTE_FUEL_DROP_THRESHOLD = "fuelDropThreshold";
 
     @Override
-    protected Map<Event, Position> analyzePosition(Position position) {
+    protected Map<Event, Position> analyzePosition(EventContext context) {
+        Position position = context.getPosition();
 
-        Device device = Context.getIdentityManager().getById(position.getDeviceId());
+        Device device = context.getDevice();
         if (device == null) {
             return null;
         }
-        if (!Context.getIdentityManager().isLatestPosition(position) || !position.getValid()) {
+        if (!context.isLatestPosition() || !position.getValid()) {
             return null;
         }
 
@@ -43,7 +45,7 @@ public class FuelDropEventHandler extends BaseEventHandler {
                 .lookupAttributeDouble(device.getId(), ATTRIBUTE_FUEL_DROP_THRESHOLD, 0, false);
 
         if (fuelDropThreshold > 0) {
-            Position lastPosition = Context.getIdentityManager().getLastPosition(position.getDeviceId());
+            Position lastPosition = context.getLastPosition();
             if (position.getAttributes().containsKey(Position.KEY_FUEL_LEVEL)
                     && lastPosition != null && lastPosition.getAttributes().containsKey(Position.KEY_FUEL_LEVEL)) {
 
@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.traccar.BaseEventHandler;
 import org.traccar.Context;
+import org.traccar.EventContext;
 import org.traccar.database.GeofenceManager;
 import org.traccar.model.Calendar;
 import org.traccar.model.Device;
@@ -37,12 +38,13 @@ public class GeofenceEventHandler extends BaseEventHandler {
     }
 
     @Override
-    protected Map<Event, Position> analyzePosition(Position position) {
-        Device device = Context.getIdentityManager().getById(position.getDeviceId());
+    protected Map<Event, Position> analyzePosition(EventContext context) {
+        Position position = context.getPosition();
+        Device device = context.getDevice();
         if (device == null) {
             return null;
         }
-        if (!Context.getIdentityManager().isLatestPosition(position) || !position.getValid()) {
+        if (!context.isLatestPosition() || !position.getValid()) {
             return null;
         }
 
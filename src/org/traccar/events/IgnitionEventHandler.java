@@ -20,7 +20,7 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.traccar.BaseEventHandler;
-import org.traccar.Context;
+import org.traccar.EventContext;
 import org.traccar.model.Device;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
@@ -28,9 +28,10 @@ import org.traccar.model.Position;
 public class IgnitionEventHandler extends BaseEventHandler {
 
     @Override
-    protected Map<Event, Position> analyzePosition(Position position) {
-        Device device = Context.getIdentityManager().getById(position.getDeviceId());
-        if (device == null || !Context.getIdentityManager().isLatestPosition(position)) {
+    protected Map<Event, Position> analyzePosition(EventContext context) {
+        Position position = context.getPosition();
+        Device device = context.getDevice();
+        if (device == null || !context.isLatestPosition()) {
             return null;
         }
 
@@ -39,7 +40,7 @@ public class IgnitionEventHandler extends BaseEventHandler {
         if (position.getAttributes().containsKey(Position.KEY_IGNITION)) {
             boolean ignition = position.getBoolean(Position.KEY_IGNITION);
 
-            Position lastPosition = Context.getIdentityManager().getLastPosition(position.getDeviceId());
+            Position lastPosition = context.getLastPosition();
             if (lastPosition != null && lastPosition.getAttributes().containsKey(Position.KEY_IGNITION)) {
                 boolean oldIgnition = lastPosition.getBoolean(Position.KEY_IGNITION);
 
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import org.traccar.BaseEventHandler;
 import org.traccar.Context;
+import org.traccar.EventContext;
 import org.traccar.model.Device;
 import org.traccar.model.Event;
 import org.traccar.model.Position;
@@ -31,9 +32,10 @@ public class MaintenanceEventHandler extends BaseEventHandler {
     public static final String ATTRIBUTE_MAINTENANCE_INTERVAL = "maintenance.interval";
 
     @Override
-    protected Map<Event, Position> analyzePosition(Position position) {
-        Device device = Context.getIdentityManager().getById(position.getDeviceId());
-        if (device == null || !Context.getIdentityManager().isLatestPosition(position)) {
+    protected Map<Event, Position> analyzePosition(EventContext context) {
+        Position position = context.getPosition();
+        Device device = context.getDevice();
+        if (device == null || !context.isLatestPosition()) {
             return null;
         }
 
@@ -48,7 +50,7 @@ public class MaintenanceEventHandler extends BaseEventHandler {
         double oldTotalDistance = 0.0;
         double newTotalDistance = 0.0;
 
-        Position lastPosition = Context.getIdentityManager().getLastPosition(position.getDeviceId());
+        Position lastPosition = context.getLastPosition();
         if (lastPosition != null) {
             oldTotalDistance = lastPosition.getDouble(Position.KEY_TOTAL_DISTANCE);
         }
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import org.traccar.BaseEventHandler;
 import org.traccar.Context;
+import org.traccar.EventContext;
 import org.traccar.model.Device;
 import org.traccar.model.DeviceState;
 import org.traccar.model.Event;
@@ -102,19 +103,20 @@ public class MotionEventHandler extends BaseEventHandler {
     }
 
     @Override
-    protected Map<Event, Position> analyzePosition(Position position) {
+    protected Map<Event, Position> analyzePosition(EventContext context) {
+        Position position = context.getPosition();
 
         long deviceId = position.getDeviceId();
-        Device device = Context.getIdentityManager().getById(deviceId);
+        Device device = context.getDevice();
         if (device == null) {
             return null;
         }
-        if (!Context.getIdentityManager().isLatestPosition(position) || !position.getValid()) {
+        if (!context.isLatestPosition() || !position.getValid()) {
             return null;
         }
 
         Map<Event, Position> result = null;
-        DeviceState deviceState = Context.getDeviceManager().getDeviceState(deviceId);
+        DeviceState deviceState = context.getDeviceState();
 
         if (deviceState.getMotionState() == null) {
             deviceState.setMotionState(position.getBoolean(Position.KEY_MOTION));
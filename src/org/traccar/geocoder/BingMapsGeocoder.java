@@ -20,8 +20,8 @@ import javax.json.JsonObject;
 
 public class BingMapsGeocoder extends JsonGeocoder {
 
-    public BingMapsGeocoder(String url, String key, int cacheSize) {
-        super(url + "/Locations/%f,%f?key=" + key + "&include=ciso2", cacheSize);
+    public BingMapsGeocoder(String url, String key) {
+        super(url + "/Locations/%f,%f?key=" + key + "&include=ciso2");
     }
 
     @Override
@@ -30,8 +30,8 @@ public class GeocodeFarmGeocoder extends JsonGeocoder {
         }
         return url;
     }
-    public GeocodeFarmGeocoder(String key, String language, int cacheSize) {
-        super(formatUrl(key, language), cacheSize);
+    public GeocodeFarmGeocoder(String key, String language) {
+        super(formatUrl(key, language));
     }
 
     @Override
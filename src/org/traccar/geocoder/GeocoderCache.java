@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geocoder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches addresses of any geocoder by coordinates rounded to given number of decimal places. Concurrent lookups of
+ * the same cell are served by a single request.
+ */
+public class GeocoderCache implements Geocoder {
+
+    private static final int MAX_PRECISION = 7;
+    private static final int SEGMENTS = 16;
+    private static final long PENDING_TIMEOUT = 30 * 1000;
+
+    private final Geocoder geocoder;
+    private final double scale;
+    private final long width;
+
+    private final Segment[] segments;
+
+    private final ConcurrentMap<Long, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public GeocoderCache(Geocoder geocoder, int cacheSize, int precision) {
+        this.geocoder = geocoder;
+        precision = Math.max(0, Math.min(precision, MAX_PRECISION));
+        scale = Math.pow(10, precision);
+        width = Math.round(360 * scale) + 1;
+
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(cacheSize / SEGMENTS, 1));
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Long, String> {
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > capacity;
+        }
+
+    }
+
+    private final class PendingRequest implements ReverseGeocoderCallback {
+
+        private final long key;
+        private final long time = System.currentTimeMillis();
+        private List<ReverseGeocoderCallback> callbacks = new ArrayList<>();
+
+        private PendingRequest(long key, ReverseGeocoderCallback callback) {
+            this.key = key;
+            callbacks.add(callback);
+        }
+
+        private synchronized boolean add(ReverseGeocoderCallback callback) {
+            if (callbacks == null) {
+                return false;
+            }
+            callbacks.add(callback);
+            return true;
+        }
+
+        private synchronized List<ReverseGeocoderCallback> complete() {
+            List<ReverseGeocoderCallback> result = callbacks;
+            callbacks = null;
+            return result;
+        }
+
+        @Override
+        public void onSuccess(String address) {
+            put(key, address);
+            pendingRequests.remove(key, this);
+            for (ReverseGeocoderCallback callback : complete()) {
+                callback.onSuccess(address);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            pendingRequests.remove(key, this);
+            for (ReverseGeocoderCallback callback : complete()) {
+                callback.onFailure(e);
+            }
+        }
+
+    }
+
+    long getKey(double latitude, double longitude) {
+        long latitudeIndex = Math.round((latitude + 90) * scale);
+        long longitudeIndex = Math.round((longitude + 180) * scale);
+        return latitudeIndex * width + longitudeIndex;
+    }
+
+    private Segment getSegment(long key) {
+        int hash = (int) (key ^ (key >>> 32));
+        hash ^= (hash >>> 16);
+        return segments[(hash & 0x7fffffff) % SEGMENTS];
+    }
+
+    private String get(long key) {
+        Segment segment = getSegment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    private void put(long key, String address) {
+        Segment segment = getSegment(key);
+        synchronized (segment) {
+            segment.put(key, address);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    @Override
+    public void getAddress(
+            AddressFormat format, double latitude, double longitude, ReverseGeocoderCallback callback) {
+
+        long key = getKey(latitude, longitude);
+        while (true) {
+            String address = get(key);
+            if (address != null) {
+                hits.incrementAndGet();
+                callback.onSuccess(address);
+                return;
+            }
+
+            PendingRequest request = new PendingRequest(key, callback);
+            PendingRequest existing = pendingRequests.putIfAbsent(key, request);
+            if (existing == null) {
+                misses.incrementAndGet();
+                geocoder.getAddress(format, latitude, longitude, request);
+                return;
+            }
+            if (System.currentTimeMillis() - existing.time > PENDING_TIMEOUT) {
+                // Callback of the original request was lost, let the next lookup start a new one
+                pendingRequests.remove(key, existing);
+            } else if (existing.add(callback)) {
+                coalesced.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+}
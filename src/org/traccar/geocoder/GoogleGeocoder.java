@@ -32,8 +32,8 @@ public class GoogleGeocoder extends JsonGeocoder {
         return url;
     }
 
-    public GoogleGeocoder(String key, String language, int cacheSize) {
-        super(formatUrl(key, language), cacheSize);
+    public GoogleGeocoder(String key, String language) {
+        super(formatUrl(key, language));
     }
 
     @Override
@@ -20,8 +20,8 @@ import javax.json.JsonObject;
 
 public class MapQuestGeocoder extends JsonGeocoder {
 
-    public MapQuestGeocoder(String url, String key, int cacheSize) {
-        super(url + "?key=" + key + "&location=%f,%f", cacheSize);
+    public MapQuestGeocoder(String url, String key) {
+        super(url + "?key=" + key + "&location=%f,%f");
     }
 
     @Override
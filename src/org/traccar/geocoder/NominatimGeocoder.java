@@ -33,8 +33,8 @@ public class NominatimGeocoder extends JsonGeocoder {
         return url;
     }
 
-    public NominatimGeocoder(String url, String key, String language, int cacheSize) {
-        super(formatUrl(url, key, language), cacheSize);
+    public NominatimGeocoder(String url, String key, String language) {
+        super(formatUrl(url, key, language));
     }
 
     @Override
@@ -21,8 +21,8 @@ import javax.json.JsonObject;
 
 public class OpenCageGeocoder extends JsonGeocoder {
 
-    public OpenCageGeocoder(String url, String key, int cacheSize) {
-        super(url + "/json?q=%f,%f&key=" + key, cacheSize);
+    public OpenCageGeocoder(String url, String key) {
+        super(url + "/json?q=%f,%f&key=" + key);
     }
 
     @Override
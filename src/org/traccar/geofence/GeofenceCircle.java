@@ -37,11 +37,18 @@ public class GeofenceCircle extends GeofenceGeometry {
         this.centerLatitude = latitude;
         this.centerLongitude = longitude;
         this.radius = radius;
+        updateBounds();
+    }
+
+    private void updateBounds() {
+        // Small margin covers rounding in distance calculation
+        setBounds(centerLatitude, centerLatitude, centerLongitude, centerLongitude, radius * 1.01);
     }
 
     @Override
     public boolean containsPoint(double latitude, double longitude) {
-        return DistanceCalculator.distance(centerLatitude, centerLongitude, latitude, longitude) <= radius;
+        return boundsContain(latitude, longitude)
+                && DistanceCalculator.distance(centerLatitude, centerLongitude, latitude, longitude) <= radius;
     }
 
     @Override
@@ -63,32 +70,23 @@ public class GeofenceCircle extends GeofenceGeometry {
         if (!wkt.startsWith("CIRCLE")) {
             throw new ParseException("Mismatch geometry type", 0);
         }
-        String content = wkt.substring(wkt.indexOf("(") + 1, wkt.indexOf(")"));
-        if (content == null || content.equals("")) {
+        int start = wkt.indexOf("(") + 1;
+        int end = wkt.indexOf(")");
+        if (start >= end) {
             throw new ParseException("No content", 0);
         }
-        String[] commaTokens = content.split(",");
-        if (commaTokens.length != 2) {
+        int separator = wkt.indexOf(",", start);
+        if (separator < 0 || separator > end || wkt.indexOf(",", separator + 1) >= 0
+                && wkt.indexOf(",", separator + 1) < end) {
             throw new ParseException("Not valid content", 0);
         }
-        String[] tokens = commaTokens[0].split("\\s");
-        if (tokens.length != 2) {
+        double[] center = parseCoordinates(wkt, start, separator);
+        if (center.length != 2) {
             throw new ParseException("Too much or less coordinates", 0);
         }
-        try {
-            centerLatitude = Double.parseDouble(tokens[0]);
-        } catch (NumberFormatException e) {
-            throw new ParseException(tokens[0] + " is not a double", 0);
-        }
-        try {
-            centerLongitude = Double.parseDouble(tokens[1]);
-        } catch (NumberFormatException e) {
-            throw new ParseException(tokens[1] + " is not a double", 0);
-        }
-        try {
-            radius = Double.parseDouble(commaTokens[1]);
-        } catch (NumberFormatException e) {
-            throw new ParseException(commaTokens[1] + " is not a double", 0);
-        }
+        centerLatitude = center[0];
+        centerLongitude = center[1];
+        radius = parseNumber(wkt, separator + 1, end);
+        updateBounds();
     }
 }
@@ -16,35 +16,129 @@
 package org.traccar.geofence;
 
 import java.text.ParseException;
+import java.util.Arrays;
 
 public abstract class GeofenceGeometry {
 
-    public abstract boolean containsPoint(double latitude, double longitude);
+    protected static final double EARTH_RADIUS = 6378137;
 
-    public abstract String toWkt();
+    private double minLatitude = -90;
+    private double maxLatitude = 90;
+    private double minLongitude = -180;
+    private double maxLongitude = 180;
 
-    public abstract void fromWkt(String wkt) throws ParseException;
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    /**
+     * Longitude range may extend past 180 for geometries crossing the antimeridian.
+     */
+    public double getMinLongitude() {
+        return minLongitude;
+    }
 
-    public static class Coordinate {
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
 
-        private double lat;
-        private double lon;
+    protected void setBounds(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+        this.minLatitude = minLatitude;
+        this.maxLatitude = maxLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLongitude = maxLongitude;
+    }
 
-        public double getLat() {
-            return lat;
+    protected void setBounds(
+            double minLatitude, double maxLatitude, double minLongitude, double maxLongitude, double distance) {
+        double latitudeDelta = Math.toDegrees(distance / EARTH_RADIUS);
+        minLatitude -= latitudeDelta;
+        maxLatitude += latitudeDelta;
+        double cos = Math.cos(Math.toRadians(Math.max(Math.abs(minLatitude), Math.abs(maxLatitude))));
+        if (minLatitude <= -90 || maxLatitude >= 90 || Math.sin(distance / EARTH_RADIUS) >= cos) {
+            setBounds(Math.max(minLatitude, -90), Math.min(maxLatitude, 90), -180, 180);
+        } else {
+            double longitudeDelta = Math.toDegrees(Math.asin(Math.sin(distance / EARTH_RADIUS) / cos));
+            setBounds(minLatitude, maxLatitude, minLongitude - longitudeDelta, maxLongitude + longitudeDelta);
         }
+    }
 
-        public void setLat(double lat) {
-            this.lat = lat;
+    public static boolean containsLongitude(double minLongitude, double maxLongitude, double longitude) {
+        return longitude >= minLongitude && longitude <= maxLongitude
+                || longitude + 360 >= minLongitude && longitude + 360 <= maxLongitude
+                || longitude - 360 >= minLongitude && longitude - 360 <= maxLongitude;
+    }
+
+    public boolean boundsContain(double latitude, double longitude) {
+        return latitude >= minLatitude && latitude <= maxLatitude
+                && containsLongitude(minLongitude, maxLongitude, longitude);
+    }
+
+    private static int skipWhitespace(String wkt, int index, int end) {
+        while (index < end && Character.isWhitespace(wkt.charAt(index))) {
+            index += 1;
         }
+        return index;
+    }
 
-        public double getLon() {
-            return lon;
+    private static int skipToken(String wkt, int index, int end) {
+        while (index < end && !Character.isWhitespace(wkt.charAt(index))) {
+            index += 1;
         }
+        return index;
+    }
+
+    protected static double parseNumber(String wkt, int start, int end) throws ParseException {
+        start = skipWhitespace(wkt, start, end);
+        while (end > start && Character.isWhitespace(wkt.charAt(end - 1))) {
+            end -= 1;
+        }
+        String token = wkt.substring(start, end);
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw new ParseException(token + " is not a double", start);
+        }
+    }
 
-        public void setLon(double lon) {
-            this.lon = lon;
+    /**
+     * Parses comma separated coordinate pairs into a flat array of latitude and longitude values.
+     */
+    protected static double[] parseCoordinates(String wkt, int start, int end) throws ParseException {
+        double[] result = new double[32];
+        int size = 0;
+        int index = start;
+        while (index < end) {
+            int next = wkt.indexOf(',', index);
+            if (next < 0 || next > end) {
+                next = end;
+            }
+            int latitudeStart = skipWhitespace(wkt, index, next);
+            int latitudeEnd = skipToken(wkt, latitudeStart, next);
+            int longitudeStart = skipWhitespace(wkt, latitudeEnd, next);
+            int longitudeEnd = skipToken(wkt, longitudeStart, next);
+            if (latitudeStart == latitudeEnd || longitudeStart == longitudeEnd
+                    || skipWhitespace(wkt, longitudeEnd, next) != next) {
+                throw new ParseException("Here must be two coordinates: " + wkt.substring(index, next), index);
+            }
+            if (size + 2 > result.length) {
+                result = Arrays.copyOf(result, result.length * 2);
+            }
+            result[size++] = parseNumber(wkt, latitudeStart, latitudeEnd);
+            result[size++] = parseNumber(wkt, longitudeStart, longitudeEnd);
+            index = next + 1;
         }
+        return Arrays.copyOf(result, size);
     }
 
+    public abstract boolean containsPoint(double latitude, double longitude);
+
+    public abstract String toWkt();
+
+    public abstract void fromWkt(String wkt) throws ParseException;
+
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.geofence;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Immutable R-tree over geofence bounding boxes, packed with the Sort-Tile-Recursive algorithm.
+ */
+public final class GeofenceIndex {
+
+    private static final int NODE_SIZE = 16;
+
+    private final long[] ids;
+
+    // Bounds of entries on level 0 and of nodes above it, four values per item
+    private final double[][] levels;
+
+    public GeofenceIndex(long[] ids, GeofenceGeometry[] geometries) {
+        final double[] bounds = new double[ids.length * 4];
+        for (int i = 0; i < ids.length; i++) {
+            bounds[i * 4] = geometries[i].getMinLatitude();
+            bounds[i * 4 + 1] = geometries[i].getMaxLatitude();
+            bounds[i * 4 + 2] = geometries[i].getMinLongitude();
+            bounds[i * 4 + 3] = geometries[i].getMaxLongitude();
+        }
+
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Double.compare(
+                        bounds[o1 * 4 + 2] + bounds[o1 * 4 + 3], bounds[o2 * 4 + 2] + bounds[o2 * 4 + 3]);
+            }
+        });
+        int leafCount = (ids.length + NODE_SIZE - 1) / NODE_SIZE;
+        int sliceSize = (int) Math.ceil(Math.sqrt(leafCount)) * NODE_SIZE;
+        for (int start = 0; start < order.length; start += sliceSize) {
+            Arrays.sort(order, start, Math.min(start + sliceSize, order.length), new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Double.compare(
+                            bounds[o1 * 4] + bounds[o1 * 4 + 1], bounds[o2 * 4] + bounds[o2 * 4 + 1]);
+                }
+            });
+        }
+
+        this.ids = new long[ids.length];
+        double[] entries = new double[bounds.length];
+        for (int i = 0; i < order.length; i++) {
+            this.ids[i] = ids[order[i]];
+            System.arraycopy(bounds, order[i] * 4, entries, i * 4, 4);
+        }
+
+        int levelCount = 1;
+        for (int count = ids.length; count > 1; count = (count + NODE_SIZE - 1) / NODE_SIZE) {
+            levelCount += 1;
+        }
+        levels = new double[levelCount][];
+        levels[0] = entries;
+        for (int level = 1; level < levelCount; level++) {
+            double[] children = levels[level - 1];
+            int childCount = children.length / 4;
+            double[] nodes = new double[(childCount + NODE_SIZE - 1) / NODE_SIZE * 4];
+            for (int node = 0; node < nodes.length / 4; node++) {
+                nodes[node * 4] = Double.MAX_VALUE;
+                nodes[node * 4 + 1] = -Double.MAX_VALUE;
+                nodes[node * 4 + 2] = Double.MAX_VALUE;
+                nodes[node * 4 + 3] = -Double.MAX_VALUE;
+                for (int child = node * NODE_SIZE; child < Math.min((node + 1) * NODE_SIZE, childCount); child++) {
+                    nodes[node * 4] = Math.min(nodes[node * 4], children[child * 4]);
+                    nodes[node * 4 + 1] = Math.max(nodes[node * 4 + 1], children[child * 4 + 1]);
+                    nodes[node * 4 + 2] = Math.min(nodes[node * 4 + 2], children[child * 4 + 2]);
+                    nodes[node * 4 + 3] = Math.max(nodes[node * 4 + 3], children[child * 4 + 3]);
+                }
+            }
+            levels[level] = nodes;
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    private static boolean contains(double[] bounds, int index, double latitude, double longitude) {
+        return latitude >= bounds[index * 4] && latitude <= bounds[index * 4 + 1]
+                && GeofenceGeometry.containsLongitude(bounds[index * 4 + 2], bounds[index * 4 + 3], longitude);
+    }
+
+    private static final class Result {
+
+        private long[] values = new long[NODE_SIZE];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+    }
+
+    private void find(int level, int node, double latitude, double longitude, Result result) {
+        double[] children = levels[level - 1];
+        int end = Math.min((node + 1) * NODE_SIZE, children.length / 4);
+        for (int child = node * NODE_SIZE; child < end; child++) {
+            if (contains(children, child, latitude, longitude)) {
+                if (level == 1) {
+                    result.add(ids[child]);
+                } else {
+                    find(level - 1, child, latitude, longitude, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns identifiers of geofences whose bounding box contains the point.
+     */
+    public long[] find(double latitude, double longitude) {
+        if (ids.length == 0) {
+            return ids;
+        }
+        Result result = new Result();
+        // Virtual root above the top level, which always has a single node
+        find(levels.length, 0, latitude, longitude, result);
+        return Arrays.copyOf(result.values, result.size);
+    }
+
+}
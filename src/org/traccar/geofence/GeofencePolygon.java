@@ -16,7 +16,6 @@
 package org.traccar.geofence;
 
 import java.text.ParseException;
-import java.util.ArrayList;
 
 public class GeofencePolygon extends GeofenceGeometry {
 
@@ -27,7 +26,11 @@ public class GeofencePolygon extends GeofenceGeometry {
         fromWkt(wkt);
     }
 
-    private ArrayList<Coordinate> coordinates;
+    private double[] latitudes;
+    private double[] longitudes;
+
+    // Longitudes shifted by 360 for polygons crossing the antimeridian
+    private double[] normalizedLongitudes;
 
     private double[] constant;
     private double[] multiple;
@@ -35,47 +38,45 @@ public class GeofencePolygon extends GeofenceGeometry {
     private boolean needNormalize = false;
 
     private void precalc() {
-        if (coordinates == null) {
-            return;
-        }
-
-        int polyCorners = coordinates.size();
-        int i;
-        int j = polyCorners - 1;
-
-        if (constant != null) {
-            constant = null;
-        }
-        if (multiple != null) {
-            multiple = null;
-        }
-
-        constant = new double[polyCorners];
-        multiple = new double[polyCorners];
+        int polyCorners = latitudes.length;
 
         boolean hasNegative = false;
         boolean hasPositive = false;
-        for (i = 0; i < polyCorners; i++) {
-            if (coordinates.get(i).getLon() > 90) {
+        for (int i = 0; i < polyCorners; i++) {
+            if (longitudes[i] > 90) {
                 hasPositive = true;
-            } else if (coordinates.get(i).getLon() < -90) {
+            } else if (longitudes[i] < -90) {
                 hasNegative = true;
             }
         }
         needNormalize = hasPositive && hasNegative;
 
-        for (i = 0; i < polyCorners; j = i++) {
-            if (normalizeLon(coordinates.get(j).getLon()) == normalizeLon(coordinates.get(i).getLon())) {
-                constant[i] = coordinates.get(i).getLat();
+        normalizedLongitudes = new double[polyCorners];
+        double minLatitude = Double.MAX_VALUE;
+        double maxLatitude = -Double.MAX_VALUE;
+        double minLongitude = Double.MAX_VALUE;
+        double maxLongitude = -Double.MAX_VALUE;
+        for (int i = 0; i < polyCorners; i++) {
+            normalizedLongitudes[i] = normalizeLon(longitudes[i]);
+            minLatitude = Math.min(minLatitude, latitudes[i]);
+            maxLatitude = Math.max(maxLatitude, latitudes[i]);
+            minLongitude = Math.min(minLongitude, normalizedLongitudes[i]);
+            maxLongitude = Math.max(maxLongitude, normalizedLongitudes[i]);
+        }
+        setBounds(minLatitude, maxLatitude, minLongitude, maxLongitude);
+
+        constant = new double[polyCorners];
+        multiple = new double[polyCorners];
+        double[] lon = normalizedLongitudes;
+        for (int i = 0, j = polyCorners - 1; i < polyCorners; j = i++) {
+            if (lon[j] == lon[i]) {
+                constant[i] = latitudes[i];
                 multiple[i] = 0;
             } else {
-                constant[i] = coordinates.get(i).getLat()
-                        - (normalizeLon(coordinates.get(i).getLon()) * coordinates.get(j).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()))
-                        + (normalizeLon(coordinates.get(i).getLon()) * coordinates.get(i).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()));
-                multiple[i] = (coordinates.get(j).getLat() - coordinates.get(i).getLat())
-                        / (normalizeLon(coordinates.get(j).getLon()) - normalizeLon(coordinates.get(i).getLon()));
+                constant[i] = latitudes[i]
+                        - (lon[i] * latitudes[j]) / (lon[j] - lon[i])
+                        + (lon[i] * latitudes[i]) / (lon[j] - lon[i]);
+                multiple[i] = (latitudes[j] - latitudes[i]) / (lon[j] - lon[i]);
             }
         }
     }
@@ -90,17 +91,17 @@ public class GeofencePolygon extends GeofenceGeometry {
     @Override
     public boolean containsPoint(double latitude, double longitude) {
 
-        int polyCorners = coordinates.size();
-        int i;
-        int j = polyCorners - 1;
+        if (!boundsContain(latitude, longitude)) {
+            return false;
+        }
+
+        double[] lon = normalizedLongitudes;
         double longitudeNorm = normalizeLon(longitude);
         boolean oddNodes = false;
 
-        for (i = 0; i < polyCorners; j = i++) {
-            if (normalizeLon(coordinates.get(i).getLon()) < longitudeNorm
-                    && normalizeLon(coordinates.get(j).getLon()) >= longitudeNorm
-                    || normalizeLon(coordinates.get(j).getLon()) < longitudeNorm
-                    && normalizeLon(coordinates.get(i).getLon()) >= longitudeNorm) {
+        for (int i = 0, j = lon.length - 1; i < lon.length; j = i++) {
+            if (lon[i] < longitudeNorm && lon[j] >= longitudeNorm
+                    || lon[j] < longitudeNorm && lon[i] >= longitudeNorm) {
                 oddNodes ^= longitudeNorm * multiple[i] + constant[i] < latitude;
             }
         }
@@ -111,10 +112,10 @@ public class GeofencePolygon extends GeofenceGeometry {
     public String toWkt() {
         StringBuilder buf = new StringBuilder();
         buf.append("POLYGON ((");
-        for (Coordinate coordinate : coordinates) {
-            buf.append(String.valueOf(coordinate.getLat()));
+        for (int i = 0; i < latitudes.length; i++) {
+            buf.append(String.valueOf(latitudes[i]));
             buf.append(" ");
-            buf.append(String.valueOf(coordinate.getLon()));
+            buf.append(String.valueOf(longitudes[i]));
             buf.append(", ");
         }
         return buf.substring(0, buf.length() - 2) + "))";
@@ -122,41 +123,24 @@ public class GeofencePolygon extends GeofenceGeometry {
 
     @Override
     public void fromWkt(String wkt) throws ParseException {
-        if (coordinates == null) {
-            coordinates = new ArrayList<>();
-        } else {
-            coordinates.clear();
-        }
-
         if (!wkt.startsWith("POLYGON")) {
             throw new ParseException("Mismatch geometry type", 0);
         }
-        String content = wkt.substring(wkt.indexOf("((") + 2, wkt.indexOf("))"));
-        if (content.isEmpty()) {
+        int start = wkt.indexOf("((") + 2;
+        int end = wkt.indexOf("))");
+        if (start >= end) {
             throw new ParseException("No content", 0);
         }
-        String[] commaTokens = content.split(",");
-        if (commaTokens.length < 3) {
+        double[] coordinates = parseCoordinates(wkt, start, end);
+        if (coordinates.length < 3 * 2) {
             throw new ParseException("Not valid content", 0);
         }
 
-        for (String commaToken : commaTokens) {
-            String[] tokens = commaToken.trim().split("\\s");
-            if (tokens.length != 2) {
-                throw new ParseException("Here must be two coordinates: " + commaToken, 0);
-            }
-            Coordinate coordinate = new Coordinate();
-            try {
-                coordinate.setLat(Double.parseDouble(tokens[0]));
-            } catch (NumberFormatException e) {
-                throw new ParseException(tokens[0] + " is not a double", 0);
-            }
-            try {
-                coordinate.setLon(Double.parseDouble(tokens[1]));
-            } catch (NumberFormatException e) {
-                throw new ParseException(tokens[1] + " is not a double", 0);
-            }
-            coordinates.add(coordinate);
+        latitudes = new double[coordinates.length / 2];
+        longitudes = new double[coordinates.length / 2];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = coordinates[i * 2];
+            longitudes[i] = coordinates[i * 2 + 1];
         }
         precalc();
     }
@@ -17,29 +17,85 @@
 package org.traccar.geofence;
 
 import java.text.ParseException;
-import java.util.ArrayList;
 
 import org.traccar.helper.DistanceCalculator;
 
 public class GeofencePolyline extends GeofenceGeometry {
 
-    private ArrayList<Coordinate> coordinates;
+    private double[] latitudes;
+    private double[] longitudes;
     private double distance;
 
+    // Bounding box of every segment widened by the buffer, four values per segment
+    private double[] segmentBounds;
+
     public GeofencePolyline() {
     }
 
     public GeofencePolyline(String wkt, double distance) throws ParseException {
         fromWkt(wkt);
         this.distance = distance;
+        updateBounds();
+    }
+
+    private static void widenBounds(double[] bounds, int offset, double distance) {
+        double span = bounds[offset + 3] - bounds[offset + 2];
+        span = Math.toRadians(span > 180 ? 360 - span : span);
+        // Arc between end points bulges towards the pole, quadratic term overestimates the deviation
+        double latitudeDelta = Math.toDegrees(distance / EARTH_RADIUS + span * span / 8);
+        bounds[offset] -= latitudeDelta;
+        bounds[offset + 1] += latitudeDelta;
+        double cos = Math.cos(Math.toRadians(Math.max(Math.abs(bounds[offset]), Math.abs(bounds[offset + 1]))));
+        if (bounds[offset + 3] - bounds[offset + 2] > 180 || Math.sin(distance / EARTH_RADIUS) >= cos) {
+            // Segments may cross the antimeridian, distance calculation wraps around
+            bounds[offset + 2] = -180;
+            bounds[offset + 3] = 180;
+        } else {
+            double longitudeDelta = Math.toDegrees(Math.asin(Math.sin(distance / EARTH_RADIUS) / cos));
+            bounds[offset + 2] -= longitudeDelta;
+            bounds[offset + 3] += longitudeDelta;
+        }
+    }
+
+    private void updateBounds() {
+        if (latitudes == null || latitudes.length == 0) {
+            return;
+        }
+        // Distance to segment is approximate, so the buffer is widened
+        double buffer = distance * 1.1;
+
+        segmentBounds = new double[(latitudes.length - 1) * 4];
+        double minLatitude = latitudes[0];
+        double maxLatitude = latitudes[0];
+        double minLongitude = longitudes[0];
+        double maxLongitude = longitudes[0];
+        for (int i = 1; i < latitudes.length; i++) {
+            int offset = (i - 1) * 4;
+            segmentBounds[offset] = Math.min(latitudes[i - 1], latitudes[i]);
+            segmentBounds[offset + 1] = Math.max(latitudes[i - 1], latitudes[i]);
+            segmentBounds[offset + 2] = Math.min(longitudes[i - 1], longitudes[i]);
+            segmentBounds[offset + 3] = Math.max(longitudes[i - 1], longitudes[i]);
+            widenBounds(segmentBounds, offset, buffer);
+            minLatitude = Math.min(minLatitude, segmentBounds[offset]);
+            maxLatitude = Math.max(maxLatitude, segmentBounds[offset + 1]);
+            minLongitude = Math.min(minLongitude, segmentBounds[offset + 2]);
+            maxLongitude = Math.max(maxLongitude, segmentBounds[offset + 3]);
+        }
+        setBounds(minLatitude, maxLatitude, minLongitude, maxLongitude);
     }
 
     @Override
     public boolean containsPoint(double latitude, double longitude) {
-        for (int i = 1; i < coordinates.size(); i++) {
-            if (DistanceCalculator.distanceToLine(
-                    latitude, longitude, coordinates.get(i - 1).getLat(), coordinates.get(i - 1).getLon(),
-                    coordinates.get(i).getLat(), coordinates.get(i).getLon()) <= distance) {
+        if (!boundsContain(latitude, longitude)) {
+            return false;
+        }
+        for (int i = 1; i < latitudes.length; i++) {
+            int offset = (i - 1) * 4;
+            if (latitude >= segmentBounds[offset] && latitude <= segmentBounds[offset + 1]
+                    && containsLongitude(segmentBounds[offset + 2], segmentBounds[offset + 3], longitude)
+                    && DistanceCalculator.distanceToLine(
+                            latitude, longitude, latitudes[i - 1], longitudes[i - 1],
+                            latitudes[i], longitudes[i]) <= distance) {
                 return true;
             }
         }
@@ -50,10 +106,10 @@ public class GeofencePolyline extends GeofenceGeometry {
     public String toWkt() {
         StringBuilder buf = new StringBuilder();
         buf.append("LINESTRING (");
-        for (Coordinate coordinate : coordinates) {
-            buf.append(String.valueOf(coordinate.getLat()));
+        for (int i = 0; i < latitudes.length; i++) {
+            buf.append(String.valueOf(latitudes[i]));
             buf.append(" ");
-            buf.append(String.valueOf(coordinate.getLon()));
+            buf.append(String.valueOf(longitudes[i]));
             buf.append(", ");
         }
         return buf.substring(0, buf.length() - 2) + ")";
@@ -61,47 +117,31 @@ public class GeofencePolyline extends GeofenceGeometry {
 
     @Override
     public void fromWkt(String wkt) throws ParseException {
-        if (coordinates == null) {
-            coordinates = new ArrayList<>();
-        } else {
-            coordinates.clear();
-        }
-
         if (!wkt.startsWith("LINESTRING")) {
             throw new ParseException("Mismatch geometry type", 0);
         }
-        String content = wkt.substring(wkt.indexOf("(") + 1, wkt.indexOf(")"));
-        if (content.isEmpty()) {
+        int start = wkt.indexOf("(") + 1;
+        int end = wkt.indexOf(")");
+        if (start >= end) {
             throw new ParseException("No content", 0);
         }
-        String[] commaTokens = content.split(",");
-        if (commaTokens.length < 2) {
+        double[] coordinates = parseCoordinates(wkt, start, end);
+        if (coordinates.length < 2 * 2) {
             throw new ParseException("Not valid content", 0);
         }
 
-        for (String commaToken : commaTokens) {
-            String[] tokens = commaToken.trim().split("\\s");
-            if (tokens.length != 2) {
-                throw new ParseException("Here must be two coordinates: " + commaToken, 0);
-            }
-            Coordinate coordinate = new Coordinate();
-            try {
-                coordinate.setLat(Double.parseDouble(tokens[0]));
-            } catch (NumberFormatException e) {
-                throw new ParseException(tokens[0] + " is not a double", 0);
-            }
-            try {
-                coordinate.setLon(Double.parseDouble(tokens[1]));
-            } catch (NumberFormatException e) {
-                throw new ParseException(tokens[1] + " is not a double", 0);
-            }
-            coordinates.add(coordinate);
+        latitudes = new double[coordinates.length / 2];
+        longitudes = new double[coordinates.length / 2];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = coordinates[i * 2];
+            longitudes[i] = coordinates[i * 2 + 1];
         }
-
+        updateBounds();
     }
 
     public void setDistance(double distance) {
         this.distance = distance;
+        updateBounds();
     }
 
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.helper;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public final class ImmutableLongSet extends AbstractSet<Long> {
+
+    public static final ImmutableLongSet EMPTY = new ImmutableLongSet(new long[0]);
+
+    private final long[] values;
+
+    private ImmutableLongSet(long[] values) {
+        this.values = values;
+    }
+
+    public static ImmutableLongSet of(long[] values, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        long[] sorted = Arrays.copyOf(values, length);
+        Arrays.sort(sorted);
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return new ImmutableLongSet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+    }
+
+    public static ImmutableLongSet of(Collection<Long> collection) {
+        if (collection instanceof ImmutableLongSet) {
+            return (ImmutableLongSet) collection;
+        } else if (collection instanceof LongSet) {
+            long[] values = ((LongSet) collection).toLongArray();
+            return values.length > 0 ? new ImmutableLongSet(values) : EMPTY;
+        }
+        long[] values = new long[collection.size()];
+        int length = 0;
+        for (long value : collection) {
+            values[length++] = value;
+        }
+        return of(values, length);
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof Long && contains(((Long) object).longValue());
+    }
+
+    public ImmutableLongSet with(long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return this;
+        }
+        index = -1 - index;
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(values, index, result, index + 1, values.length - index);
+        return new ImmutableLongSet(result);
+    }
+
+    public ImmutableLongSet without(long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return this;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return new ImmutableLongSet(result);
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    public long[] toLongArray() {
+        return values.clone();
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < values.length;
+            }
+
+            @Override
+            public Long next() {
+                if (index >= values.length) {
+                    throw new NoSuchElementException();
+                }
+                return values[index++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.helper;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class LongSet extends AbstractSet<Long> {
+
+    private static final int COMPACT_LIMIT = 16;
+    private static final int MIN_CAPACITY = 32;
+
+    // Small sets are kept as a sorted array, larger ones switch to open addressing with zero as empty slot
+    private long[] values;
+    private int size;
+    private boolean hashed;
+    private boolean hasZero;
+
+    public LongSet() {
+        values = new long[4];
+    }
+
+    public LongSet(LongSet other) {
+        values = other.values.clone();
+        size = other.size;
+        hashed = other.hashed;
+        hasZero = other.hasZero;
+    }
+
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private int find(long value) {
+        int mask = values.length - 1;
+        int index = mix(value) & mask;
+        while (values[index] != 0) {
+            if (values[index] == value) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1 - index;
+    }
+
+    @Override
+    public int size() {
+        return hashed && hasZero ? size + 1 : size;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    public boolean contains(long value) {
+        if (!hashed) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        } else if (value == 0) {
+            return hasZero;
+        }
+        return find(value) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof Long && contains(((Long) object).longValue());
+    }
+
+    public boolean add(long value) {
+        if (!hashed) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return false;
+            }
+            if (size < COMPACT_LIMIT) {
+                index = -1 - index;
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, Math.min(size * 2, COMPACT_LIMIT));
+                }
+                System.arraycopy(values, index, values, index + 1, size - index);
+                values[index] = value;
+                size += 1;
+                return true;
+            }
+            rehash(MIN_CAPACITY);
+        }
+        if (value == 0) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int index = find(value);
+        if (index >= 0) {
+            return false;
+        }
+        if ((size + 1) * 4 > values.length * 3) {
+            rehash(values.length << 1);
+            index = find(value);
+        }
+        values[-1 - index] = value;
+        size += 1;
+        return true;
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> collection) {
+        boolean changed = false;
+        if (collection instanceof ImmutableLongSet) {
+            ImmutableLongSet other = (ImmutableLongSet) collection;
+            for (int i = 0; i < other.size(); i++) {
+                changed |= add(other.get(i));
+            }
+        } else if (collection instanceof LongSet) {
+            for (long value : ((LongSet) collection).toLongArray()) {
+                changed |= add(value);
+            }
+        } else {
+            for (long value : collection) {
+                changed |= add(value);
+            }
+        }
+        return changed;
+    }
+
+    public boolean remove(long value) {
+        if (!hashed) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size -= 1;
+            return true;
+        }
+        if (value == 0) {
+            boolean removed = hasZero;
+            hasZero = false;
+            return removed;
+        }
+        int index = find(value);
+        if (index < 0) {
+            return false;
+        }
+        int mask = values.length - 1;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (values[next] != 0) {
+            int ideal = mix(values[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = 0;
+        size -= 1;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        return object instanceof Long && remove(((Long) object).longValue());
+    }
+
+    @Override
+    public void clear() {
+        values = new long[4];
+        size = 0;
+        hashed = false;
+        hasZero = false;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldValues = values;
+        int oldSize = hashed ? oldValues.length : size;
+        boolean wasHashed = hashed;
+        values = new long[capacity];
+        hashed = true;
+        size = 0;
+        for (int i = 0; i < oldSize; i++) {
+            long value = oldValues[i];
+            if (value != 0) {
+                values[-1 - find(value)] = value;
+                size += 1;
+            } else if (!wasHashed) {
+                hasZero = true;
+            }
+        }
+    }
+
+    public long[] toLongArray() {
+        if (!hashed) {
+            return Arrays.copyOf(values, size);
+        }
+        long[] result = new long[size()];
+        int length = 0;
+        if (hasZero) {
+            result[length++] = 0;
+        }
+        for (long value : values) {
+            if (value != 0) {
+                result[length++] = value;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    public void compact() {
+        if (hashed && size() <= COMPACT_LIMIT) {
+            values = toLongArray();
+            size = values.length;
+            hashed = false;
+            hasZero = false;
+        } else if (!hashed && values.length > size) {
+            values = Arrays.copyOf(values, Math.max(size, 1));
+        }
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+
+            private int index;
+            private boolean zeroPending = hashed && hasZero;
+
+            @Override
+            public boolean hasNext() {
+                if (zeroPending) {
+                    return true;
+                } else if (!hashed) {
+                    return index < size;
+                }
+                while (index < values.length && values[index] == 0) {
+                    index += 1;
+                }
+                return index < values.length;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (zeroPending) {
+                    zeroPending = false;
+                    return 0L;
+                }
+                return values[index++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.helper;
+
+import java.util.Collection;
+import java.util.Set;
+
+public class LongSetMap {
+
+    private final LongObjectMap<LongSet> sets;
+
+    public LongSetMap() {
+        sets = new LongObjectMap<>();
+    }
+
+    public LongSetMap(int expectedSize) {
+        sets = new LongObjectMap<>(expectedSize);
+    }
+
+    /**
+     * Shallow copy, sets are shared and must be replaced rather than modified afterwards.
+     */
+    public LongSetMap(LongSetMap other) {
+        sets = new LongObjectMap<>(other.sets);
+    }
+
+    /**
+     * Live set owned by the map, published maps should expose frozen sets instead.
+     */
+    public Set<Long> get(long key) {
+        LongSet set = sets.get(key);
+        return set != null ? set : ImmutableLongSet.EMPTY;
+    }
+
+    public boolean contains(long key, long value) {
+        LongSet set = sets.get(key);
+        return set != null && set.contains(value);
+    }
+
+    private LongSet getOrCreate(long key) {
+        LongSet set = sets.get(key);
+        if (set == null) {
+            set = new LongSet();
+            sets.put(key, set);
+        }
+        return set;
+    }
+
+    public boolean add(long key, long value) {
+        return getOrCreate(key).add(value);
+    }
+
+    public void addAll(long key, Collection<Long> values) {
+        if (!values.isEmpty()) {
+            getOrCreate(key).addAll(values);
+        }
+    }
+
+    public boolean remove(long key, long value) {
+        LongSet set = sets.get(key);
+        if (set != null && set.remove(value)) {
+            if (set.isEmpty()) {
+                sets.remove(key);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public void put(long key, Collection<Long> values) {
+        if (values.isEmpty()) {
+            sets.remove(key);
+        } else {
+            LongSet set = new LongSet();
+            set.addAll(values);
+            set.compact();
+            sets.put(key, set);
+        }
+    }
+
+    public long[] keys() {
+        return sets.keys();
+    }
+
+    public int size() {
+        return sets.size();
+    }
+
+    /**
+     * Allocated key slots plus allocated value slots of all sets.
+     */
+    long capacity() {
+        long result = sets.capacity();
+        for (long key : sets.keys()) {
+            result += sets.get(key).capacity();
+        }
+        return result;
+    }
+
+    public void clear() {
+        sets.clear();
+    }
+
+    public void compact() {
+        for (long key : sets.keys()) {
+            sets.get(key).compact();
+        }
+    }
+
+    public LongObjectMap<ImmutableLongSet> freeze() {
+        LongObjectMap<ImmutableLongSet> result = new LongObjectMap<>(sets.size());
+        for (long key : sets.keys()) {
+            result.put(key, ImmutableLongSet.of(sets.get(key)));
+        }
+        return result;
+    }
+
+}
@@ -18,8 +18,13 @@ package org.traccar.model;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -56,6 +61,7 @@ public class Calendar extends ExtendedModel {
         CalendarBuilder builder = new CalendarBuilder();
         calendar = builder.build(new ByteArrayInputStream(data));
         this.data = data.clone();
+        occurrences = null;
     }
 
     private net.fortuna.ical4j.model.Calendar calendar;
@@ -66,7 +72,96 @@ public class Calendar extends ExtendedModel {
         return calendar;
     }
 
+    private static final long HORIZON_BEFORE = 24 * 3600 * 1000L;
+    private static final long HORIZON_AFTER = 7 * 24 * 3600 * 1000L;
+
+    private static final class Occurrences {
+
+        private final long from;
+        private final long to;
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] boundaries;
+
+        private Occurrences(long from, long to, long[] starts, long[] ends, long[] boundaries) {
+            this.from = from;
+            this.to = to;
+            this.starts = starts;
+            this.ends = ends;
+            this.boundaries = boundaries;
+        }
+
+        private boolean covers(long time) {
+            return time >= from && time < to && Arrays.binarySearch(boundaries, time) < 0;
+        }
+
+        private boolean contains(long time) {
+            int index = -Arrays.binarySearch(starts, time) - 2;
+            return index >= 0 && time < ends[index];
+        }
+
+    }
+
+    private volatile Occurrences occurrences;
+
+    /**
+     * Expands all events around the given time into sorted non-overlapping intervals. Inclusion of exact interval
+     * boundaries depends on the event type in ical4j, so boundary moments are not covered by the index.
+     */
+    public synchronized void updateOccurrences(long time) {
+        if (calendar == null) {
+            occurrences = null;
+            return;
+        }
+        long from = time - HORIZON_BEFORE;
+        long to = time + HORIZON_AFTER;
+        Period horizon = new Period(new DateTime(from), new DateTime(to));
+        List<Period> periods = new ArrayList<>();
+        for (CalendarComponent component : calendar.getComponents(CalendarComponent.VEVENT)) {
+            periods.addAll(component.calculateRecurrenceSet(horizon));
+        }
+        Collections.sort(periods, new Comparator<Period>() {
+            @Override
+            public int compare(Period period1, Period period2) {
+                return Long.compare(period1.getStart().getTime(), period2.getStart().getTime());
+            }
+        });
+
+        long[] starts = new long[periods.size()];
+        long[] ends = new long[periods.size()];
+        long[] boundaries = new long[periods.size() * 2];
+        int count = 0;
+        for (int i = 0; i < periods.size(); i++) {
+            long start = periods.get(i).getStart().getTime();
+            long end = periods.get(i).getEnd().getTime();
+            boundaries[i * 2] = start;
+            boundaries[i * 2 + 1] = end;
+            if (count > 0 && start <= ends[count - 1]) {
+                ends[count - 1] = Math.max(ends[count - 1], end);
+            } else {
+                starts[count] = start;
+                ends[count] = end;
+                count += 1;
+            }
+        }
+        Arrays.sort(boundaries);
+        occurrences = new Occurrences(
+                from, to, Arrays.copyOf(starts, count), Arrays.copyOf(ends, count), boundaries);
+    }
+
     public boolean checkMoment(Date date) {
+        Occurrences current = occurrences;
+        if (current == null && calendar != null) {
+            updateOccurrences(System.currentTimeMillis());
+            current = occurrences;
+        }
+        if (current != null && current.covers(date.getTime())) {
+            return current.contains(date.getTime());
+        }
+        return matchMoment(date);
+    }
+
+    private boolean matchMoment(Date date) {
         if (calendar != null) {
             Period period = new Period(new DateTime(date), new Dur(0, 0, 0, 0));
             Rule<CalendarComponent> periodRule = new PeriodRule<>(period);
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Anton Tananaev (anton@traccar.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.traccar.model;
+
+import java.util.Date;
+
+public class Change extends BaseModel {
+
+    private String objectType;
+
+    public String getObjectType() {
+        return objectType;
+    }
+
+    public void setObjectType(String objectType) {
+        this.objectType = objectType;
+    }
+
+    private long objectId;
+
+    public long getObjectId() {
+        return objectId;
+    }
+
+    public void setObjectId(long objectId) {
+        this.objectId = objectId;
+    }
+
+    private Date changeTime;
+
+    public Date getChangeTime() {
+        if (changeTime != null) {
+            return new Date(changeTime.getTime());
+        } else {
+            return null;
+        }
+    }
+
+    public void setChangeTime(Date changeTime) {
+        if (changeTime != null) {
+            this.changeTime = new Date(changeTime.getTime());
+        } else {
+            this.changeTime = null;
+        }
+    }
+
+}
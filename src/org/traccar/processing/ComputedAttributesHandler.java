@@ -16,17 +16,16 @@
  */
 package org.traccar.processing;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.commons.jexl2.Expression;
+import org.apache.commons.jexl2.JexlContext;
 import org.apache.commons.jexl2.JexlEngine;
 import org.apache.commons.jexl2.JexlException;
-import org.apache.commons.jexl2.MapContext;
 import org.traccar.BaseDataHandler;
 import org.traccar.Context;
 import org.traccar.helper.Log;
@@ -40,6 +39,8 @@ public class ComputedAttributesHandler extends BaseDataHandler {
 
     private boolean mapDeviceAttributes;
 
+    private final ConcurrentMap<Long, CompiledExpression> expressions = new ConcurrentHashMap<>();
+
     public ComputedAttributesHandler() {
         engine = new JexlEngine();
         engine.setStrict(true);
@@ -48,40 +49,153 @@ public class ComputedAttributesHandler extends BaseDataHandler {
         }
     }
 
-    private MapContext prepareContext(Position position) {
-        MapContext result = new MapContext();
-        if (mapDeviceAttributes) {
-            Device device = Context.getIdentityManager().getById(position.getDeviceId());
-            if (device != null) {
-                for (Object key : device.getAttributes().keySet()) {
-                    result.set((String) key, device.getAttributes().get(key));
-                }
+    private static final class CompiledExpression {
+
+        private final String text;
+        private final Expression expression;
+
+        private CompiledExpression(String text, Expression expression) {
+            this.text = text;
+            this.expression = expression;
+        }
+
+    }
+
+    private Expression getExpression(Attribute attribute) throws JexlException {
+        CompiledExpression compiled = expressions.get(attribute.getId());
+        if (compiled == null || !compiled.text.equals(attribute.getExpression())) {
+            compiled = new CompiledExpression(
+                    attribute.getExpression(), engine.createExpression(attribute.getExpression()));
+            expressions.put(attribute.getId(), compiled);
+        }
+        return compiled.expression;
+    }
+
+    /**
+     * Resolves variables on demand, assignments only stay in the context and never modify the position.
+     */
+    private static final class PositionContext implements JexlContext {
+
+        private final Position position;
+        private final Map<String, Object> deviceAttributes;
+        private Map<String, Object> assigned;
+
+        private PositionContext(Position position, Map<String, Object> deviceAttributes) {
+            this.position = position;
+            this.deviceAttributes = deviceAttributes;
+        }
+
+        private static boolean isProperty(String name) {
+            switch (name) {
+                case "id":
+                case "deviceId":
+                case "type":
+                case "protocol":
+                case "serverTime":
+                case "deviceTime":
+                case "fixTime":
+                case "outdated":
+                case "valid":
+                case "latitude":
+                case "longitude":
+                case "altitude":
+                case "speed":
+                case "course":
+                case "address":
+                case "accuracy":
+                case "network":
+                    return true;
+                default:
+                    return false;
             }
         }
-        Set<Method> methods = new HashSet<>(Arrays.asList(position.getClass().getMethods()));
-        methods.removeAll(Arrays.asList(Object.class.getMethods()));
-        for (Method method : methods) {
-            if (method.getName().startsWith("get") && method.getParameterTypes().length == 0) {
-                String name = Character.toLowerCase(method.getName().charAt(3)) + method.getName().substring(4);
 
-                try {
-                    if (!method.getReturnType().equals(Map.class)) {
-                        result.set(name, method.invoke(position));
-                    } else {
-                        for (Object key : ((Map) method.invoke(position)).keySet()) {
-                            result.set((String) key, ((Map) method.invoke(position)).get(key));
-                        }
-                    }
-                } catch (IllegalAccessException | InvocationTargetException error) {
-                    Log.warning(error);
-                }
+        private Object getProperty(String name) {
+            switch (name) {
+                case "id":
+                    return position.getId();
+                case "deviceId":
+                    return position.getDeviceId();
+                case "type":
+                    return position.getType();
+                case "protocol":
+                    return position.getProtocol();
+                case "serverTime":
+                    return position.getServerTime();
+                case "deviceTime":
+                    return position.getDeviceTime();
+                case "fixTime":
+                    return position.getFixTime();
+                case "outdated":
+                    return position.getOutdated();
+                case "valid":
+                    return position.getValid();
+                case "latitude":
+                    return position.getLatitude();
+                case "longitude":
+                    return position.getLongitude();
+                case "altitude":
+                    return position.getAltitude();
+                case "speed":
+                    return position.getSpeed();
+                case "course":
+                    return position.getCourse();
+                case "address":
+                    return position.getAddress();
+                case "accuracy":
+                    return position.getAccuracy();
+                case "network":
+                    return position.getNetwork();
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public Object get(String name) {
+            if (assigned != null && assigned.containsKey(name)) {
+                return assigned.get(name);
+            }
+            if (isProperty(name)) {
+                return getProperty(name);
+            }
+            if (position.getAttributes().containsKey(name)) {
+                return position.getAttributes().get(name);
+            }
+            return deviceAttributes != null ? deviceAttributes.get(name) : null;
+        }
+
+        @Override
+        public void set(String name, Object value) {
+            if (assigned == null) {
+                assigned = new HashMap<>();
+            }
+            assigned.put(name, value);
+        }
+
+        @Override
+        public boolean has(String name) {
+            return assigned != null && assigned.containsKey(name)
+                    || isProperty(name)
+                    || position.getAttributes().containsKey(name)
+                    || deviceAttributes != null && deviceAttributes.containsKey(name);
+        }
+
+    }
+
+    private JexlContext prepareContext(Position position) {
+        Map<String, Object> deviceAttributes = null;
+        if (mapDeviceAttributes) {
+            Device device = Context.getIdentityManager().getById(position.getDeviceId());
+            if (device != null) {
+                deviceAttributes = device.getAttributes();
             }
         }
-        return result;
+        return new PositionContext(position, deviceAttributes);
     }
 
     public Object computeAttribute(Attribute attribute, Position position) throws JexlException {
-        return engine.createExpression(attribute.getExpression()).evaluate(prepareContext(position));
+        return getExpression(attribute).evaluate(prepareContext(position));
     }
 
     @Override
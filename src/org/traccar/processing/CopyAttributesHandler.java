@@ -22,7 +22,7 @@ import org.traccar.model.Position;
 
 public class CopyAttributesHandler extends BaseDataHandler {
 
-    private Position getLastPosition(long deviceId) {
+    protected Position getLastPosition(long deviceId) {
         if (Context.getIdentityManager() != null) {
             return Context.getIdentityManager().getLastPosition(deviceId);
         }
@@ -31,9 +31,13 @@ public class CopyAttributesHandler extends BaseDataHandler {
 
     @Override
     protected Position handlePosition(Position position) {
+        copyAttributes(position, getLastPosition(position.getDeviceId()));
+        return position;
+    }
+
+    public void copyAttributes(Position position, Position last) {
         String attributesString = Context.getDeviceManager().lookupAttributeString(
                 position.getDeviceId(), "processing.copyAttributes", "", true);
-        Position last = getLastPosition(position.getDeviceId());
         if (attributesString.isEmpty()) {
             attributesString = Position.KEY_DRIVER_UNIQUE_ID;
         } else {
@@ -46,7 +50,6 @@ public class CopyAttributesHandler extends BaseDataHandler {
                 }
             }
         }
-        return position;
     }
 
 }
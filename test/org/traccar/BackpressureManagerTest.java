@@ -0,0 +1,53 @@
+package org.traccar;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BackpressureManagerTest extends BaseTest {
+
+    @Test
+    public void testCheckQueue() {
+
+        BackpressureManager backpressureManager =
+                new BackpressureManager(100, 50, BackpressureManager.UDP_POLICY_DROP);
+
+        backpressureManager.checkQueue(99);
+        Assert.assertFalse(backpressureManager.isPaused());
+
+        backpressureManager.checkQueue(100);
+        Assert.assertTrue(backpressureManager.isPaused());
+
+        backpressureManager.checkQueue(75);
+        Assert.assertTrue(backpressureManager.isPaused());
+
+        backpressureManager.checkQueue(50);
+        Assert.assertFalse(backpressureManager.isPaused());
+
+        backpressureManager.checkQueue(75);
+        Assert.assertFalse(backpressureManager.isPaused());
+
+        backpressureManager.checkQueue(150);
+        Assert.assertTrue(backpressureManager.isPaused());
+        Assert.assertEquals(2, backpressureManager.getPauseCount());
+
+    }
+
+    @Test
+    public void testCheckJournal() {
+
+        BackpressureManager backpressureManager =
+                new BackpressureManager(100, 50, 1000, 500, BackpressureManager.UDP_POLICY_DROP);
+
+        backpressureManager.checkJournal(1000);
+        Assert.assertTrue(backpressureManager.isPaused());
+
+        // Both sources have to drain before channels resume
+        backpressureManager.checkQueue(150);
+        backpressureManager.checkJournal(100);
+        Assert.assertTrue(backpressureManager.isPaused());
+
+        backpressureManager.checkQueue(0);
+        Assert.assertFalse(backpressureManager.isPaused());
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.traccar;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.traccar.events.AlertEventHandler;
+import org.traccar.events.CommandResultEventHandler;
+import org.traccar.events.IgnitionEventHandler;
+import org.traccar.model.Event;
+import org.traccar.model.Position;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class CombinedEventHandlerTest extends BaseTest {
+
+    @Test
+    public void testCombinedEvents() throws Exception {
+
+        CombinedEventHandler combinedEventHandler = new CombinedEventHandler();
+        combinedEventHandler.addEventHandler(new CommandResultEventHandler());
+        combinedEventHandler.addEventHandler(null);
+        combinedEventHandler.addEventHandler(new IgnitionEventHandler());
+        combinedEventHandler.addEventHandler(new AlertEventHandler());
+
+        Position position = new Position();
+        position.setTime(new Date());
+        Assert.assertNull(combinedEventHandler.analyzePosition(position));
+
+        position.set(Position.KEY_RESULT, "result");
+        position.set(Position.KEY_ALARM, Position.ALARM_GENERAL);
+        position.set(Position.KEY_IGNITION, true);
+
+        Map<Event, Position> events = combinedEventHandler.analyzePosition(position);
+        Assert.assertNotNull(events);
+        List<String> types = new ArrayList<>();
+        for (Event event : events.keySet()) {
+            types.add(event.getType());
+        }
+        List<String> expected = new ArrayList<>();
+        expected.add(Event.TYPE_COMMAND_RESULT);
+        expected.add(Event.TYPE_ALARM);
+        Assert.assertEquals(expected, types);
+    }
+
+}
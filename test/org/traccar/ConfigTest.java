@@ -2,6 +2,9 @@ package org.traccar;
 
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import org.traccar.Config;
 
 public class ConfigTest {
@@ -16,4 +19,21 @@ public class ConfigTest {
         assertEquals("STATUS_TIMEOUT", Config.getEnvironmentVariableName("status.timeout"));
     }
 
+    @Test
+    public void testResolvedValues() {
+        Config config = new Config();
+        assertFalse(config.hasKey("database.saveOriginal"));
+        assertNull(config.getString("database.saveOriginal"));
+        assertEquals(5, config.getInteger("server.timeout", 5));
+
+        config.setString("database.saveOriginal", "true");
+        config.setString("server.timeout", "120");
+        assertTrue(config.hasKey("database.saveOriginal"));
+        assertTrue(config.getBoolean("database.saveOriginal"));
+        assertEquals(120, config.getInteger("server.timeout", 5));
+
+        config.setString("database.saveOriginal", "false");
+        assertFalse(config.getBoolean("database.saveOriginal"));
+    }
+
 }
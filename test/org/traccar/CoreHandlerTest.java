@@ -0,0 +1,107 @@
+package org.traccar;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.traccar.model.Position;
+
+import java.util.Date;
+import java.util.Random;
+
+public class CoreHandlerTest extends BaseTest {
+
+    private static class LastPosition {
+        private Position position;
+    }
+
+    private static Position createPosition(long seed) {
+        Random random = new Random(seed);
+        Position position = new Position();
+        position.setDeviceId(1);
+        position.setTime(new Date(1500000000000L + seed / 3 * 10000));
+        position.setValid(random.nextInt(5) > 0);
+        position.setLatitude(random.nextInt(10) > 0 ? 55.75 + random.nextDouble() * 0.01 : 0);
+        position.setLongitude(random.nextInt(10) > 0 ? 37.61 + random.nextDouble() * 0.01 : 0);
+        position.setSpeed(random.nextInt(4) > 0 ? random.nextDouble() * 50 : 0);
+        if (random.nextInt(10) == 0) {
+            position.set(Position.KEY_DISTANCE, random.nextDouble() * 100);
+        }
+        if (random.nextInt(10) == 0) {
+            position.set(Position.KEY_MOTION, random.nextBoolean());
+        }
+        return position;
+    }
+
+    private static FilterHandler createFilterHandler(final LastPosition last) {
+        FilterHandler filterHandler = new FilterHandler() {
+            @Override
+            protected Position getLastPosition(long deviceId) {
+                return last.position;
+            }
+        };
+        filterHandler.setFilterInvalid(true);
+        filterHandler.setFilterZero(true);
+        filterHandler.setFilterDuplicate(true);
+        filterHandler.setFilterStatic(true);
+        filterHandler.setFilterDistance(50);
+        filterHandler.setFilterMaxSpeed(500);
+        filterHandler.setFilterLimit(60);
+        return filterHandler;
+    }
+
+    private static DistanceHandler createDistanceHandler(final LastPosition last) {
+        return new DistanceHandler(true, 10, 500) {
+            @Override
+            protected Position getLastPosition(long deviceId) {
+                return last.position;
+            }
+        };
+    }
+
+    @Test
+    public void testEquivalence() throws Exception {
+
+        final LastPosition separateLast = new LastPosition();
+        HemisphereHandler hemisphereHandler = new HemisphereHandler();
+        DistanceHandler distanceHandler = createDistanceHandler(separateLast);
+        FilterHandler filterHandler = createFilterHandler(separateLast);
+        MotionHandler motionHandler = new MotionHandler(0.01);
+
+        final LastPosition fusedLast = new LastPosition();
+        CoreHandler coreHandler = new CoreHandler(
+                new HemisphereHandler(), createDistanceHandler(fusedLast), createFilterHandler(fusedLast),
+                new MotionHandler(0.01), null) {
+            @Override
+            protected Position getLastPosition(long deviceId) {
+                return fusedLast.position;
+            }
+        };
+
+        int passed = 0;
+        for (long seed = 0; seed < 3000; seed++) {
+
+            Position separate = (Position) hemisphereHandler.decode(null, null, createPosition(seed));
+            separate = distanceHandler.handlePosition(separate);
+            separate = filterHandler.handlePosition(separate);
+            if (separate != null) {
+                separate = motionHandler.handlePosition(separate);
+            }
+
+            Position fused = coreHandler.handlePosition(createPosition(seed));
+
+            if (separate == null) {
+                Assert.assertNull(fused);
+            } else {
+                Assert.assertNotNull(fused);
+                Assert.assertEquals(separate.getLatitude(), fused.getLatitude(), 0);
+                Assert.assertEquals(separate.getLongitude(), fused.getLongitude(), 0);
+                Assert.assertEquals(separate.getAttributes(), fused.getAttributes());
+                separateLast.position = separate;
+                fusedLast.position = fused;
+                passed += 1;
+            }
+        }
+
+        Assert.assertTrue(passed > 0 && passed < 3000);
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.traccar;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.jboss.netty.channel.local.DefaultLocalClientChannelFactory;
+import org.jboss.netty.handler.execution.ChannelEventRunnable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.traccar.model.Position;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class DeviceOrderedExecutorTest {
+
+    private static final int DEVICES = 20;
+    private static final int POSITIONS = 200;
+
+    @Test
+    public void testDeviceOrder() throws Exception {
+
+        DeviceOrderedExecutor executor = new DeviceOrderedExecutor(8, 0, 0);
+
+        final Map<Long, List<Integer>> results = new HashMap<>();
+        for (long deviceId = 1000; deviceId < 1000 + DEVICES; deviceId++) {
+            results.put(deviceId, new ArrayList<Integer>());
+        }
+
+        DefaultLocalClientChannelFactory factory = new DefaultLocalClientChannelFactory();
+        Channel[] channels = new Channel[] {
+                factory.newChannel(Channels.pipeline()), factory.newChannel(Channels.pipeline())};
+
+        for (int i = 0; i < POSITIONS; i++) {
+            for (long deviceId = 1000; deviceId < 1000 + DEVICES; deviceId++) {
+                Position position = new Position();
+                position.setDeviceId(deviceId);
+                position.set("index", i);
+                // Device keys must be compared by value, so use a fresh boxed id for each position
+                final Long key = new Long(deviceId);
+                final int index = i;
+                Channel channel = channels[(int) ((deviceId + i) % channels.length)];
+                executor.execute(new ChannelEventRunnable(
+                        null, new UpstreamMessageEvent(channel, position, null), executor) {
+                    @Override
+                    protected void doRun() {
+                        List<Integer> indexes = results.get(key);
+                        synchronized (indexes) {
+                            indexes.add(index);
+                        }
+                    }
+                });
+            }
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (List<Integer> indexes : results.values()) {
+            Assert.assertEquals(POSITIONS, indexes.size());
+            for (int i = 0; i < POSITIONS; i++) {
+                Assert.assertEquals(i, (int) indexes.get(i));
+            }
+        }
+        Assert.assertEquals(0, executor.getQueueCount());
+    }
+
+}
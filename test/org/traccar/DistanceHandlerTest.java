@@ -3,6 +3,10 @@ package org.traccar;
 import org.junit.Test;
 import org.traccar.model.Position;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 
 public class DistanceHandlerTest {
@@ -26,4 +30,22 @@ public class DistanceHandlerTest {
 
     }
 
+    @Test
+    public void testRound() {
+
+        double[] values = {0, 0.125, 0.135, 1.005, 1.015, 2.675, 1234567.895, 0.005, 99.995, 1e15 + 0.25};
+        for (double value : values) {
+            assertEquals(BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_EVEN).doubleValue(),
+                    DistanceHandler.round(value), 0);
+        }
+
+        Random random = new Random(1);
+        for (int i = 0; i < 1000000; i++) {
+            double value = random.nextInt(3) == 0
+                    ? random.nextInt(10000000) / 1000.0 : random.nextDouble() * Math.pow(10, random.nextInt(10));
+            assertEquals(BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_EVEN).doubleValue(),
+                    DistanceHandler.round(value), 0);
+        }
+    }
+
 }
@@ -55,4 +55,50 @@ public class CalendarTest {
         date = format.parse("2016-12-13 07:00:01+05");
         Assert.assertTrue(!calendar.checkMoment(date));
     }
+
+    @Test
+    public void testOccurrences() throws IOException, ParserException, ParseException {
+        String calendarString = "BEGIN:VCALENDAR\n" +
+                "PRODID:-//Mozilla.org/NONSGML Mozilla Calendar V1.1//EN\n" +
+                "VERSION:2.0\n" +
+                "BEGIN:VEVENT\n" +
+                "UID:1\n" +
+                "DTSTAMP:20161213T045242Z\n" +
+                "RRULE:FREQ=DAILY\n" +
+                "DTSTART:20161130T180000Z\n" +
+                "DTEND:20161201T020000Z\n" +
+                "END:VEVENT\n" +
+                "BEGIN:VEVENT\n" +
+                "UID:2\n" +
+                "DTSTAMP:20161213T045242Z\n" +
+                "RRULE:FREQ=HOURLY;INTERVAL=5\n" +
+                "DTSTART:20161201T013000Z\n" +
+                "DTEND:20161201T021500Z\n" +
+                "END:VEVENT\n" +
+                "BEGIN:VEVENT\n" +
+                "UID:3\n" +
+                "DTSTAMP:20161213T045242Z\n" +
+                "DTSTART:20161213T100000Z\n" +
+                "DTEND:20161213T100500Z\n" +
+                "END:VEVENT\n" +
+                "END:VCALENDAR";
+
+        Calendar indexed = new Calendar();
+        indexed.setData(calendarString.getBytes());
+        Calendar expanded = new Calendar();
+        expanded.setData(calendarString.getBytes());
+
+        long start = new SimpleDateFormat("yyyy-MM-dd HH:mmX").parse("2016-12-12 00:00Z").getTime();
+        indexed.updateOccurrences(start + 24 * 3600 * 1000L);
+        // Horizon far from checked moments forces full expansion
+        expanded.updateOccurrences(0);
+
+        for (long time = start; time < start + 3 * 24 * 3600 * 1000L; time += 5 * 60 * 1000L) {
+            for (long offset = -1; offset <= 1; offset++) {
+                Date date = new Date(time + offset * 1000);
+                Assert.assertEquals(date.toString(), expanded.checkMoment(date), indexed.checkMoment(date));
+            }
+        }
+    }
+
 }
@@ -0,0 +1,69 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.Config;
+import org.traccar.model.Device;
+import org.traccar.model.Event;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class BulkInsertDialectTest extends BaseTest {
+
+    private static DataManager dataManager;
+    private static long deviceId;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        dataManager = new DataManager(config);
+
+        Device device = new Device();
+        device.setName("bulk");
+        device.setUniqueId("bulk");
+        dataManager.addObject(device);
+        deviceId = device.getId();
+    }
+
+    @Test
+    public void testCreateDialect() {
+        Assert.assertTrue(DataManager.createBulkInsertDialect(
+                "org.postgresql.Driver jdbc:postgresql://localhost/traccar") instanceof PostgresCopyDialect);
+        Assert.assertTrue(DataManager.createBulkInsertDialect(
+                "com.mysql.jdbc.Driver jdbc:mysql://localhost/traccar") instanceof MySqlBulkDialect);
+        Assert.assertTrue(DataManager.createBulkInsertDialect(
+                "org.h2.Driver jdbc:h2:./target/database") instanceof JdbcBatchDialect);
+        Assert.assertTrue(dataManager.getBulkInsertDialect() instanceof JdbcBatchDialect);
+    }
+
+    @Test
+    public void testAddEvents() throws Exception {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Event event = new Event(Event.TYPE_DEVICE_ONLINE, deviceId);
+            event.setServerTime(new Date());
+            events.add(event);
+        }
+        dataManager.addEvents(events);
+
+        Set<Long> ids = new HashSet<>();
+        for (Event event : events) {
+            ids.add(event.getId());
+        }
+        Assert.assertEquals(5, ids.size());
+        Assert.assertFalse(ids.contains(0L));
+    }
+
+}
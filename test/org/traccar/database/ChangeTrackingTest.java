@@ -0,0 +1,139 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.Config;
+import org.traccar.model.Change;
+import org.traccar.model.Driver;
+
+import java.util.Date;
+
+public class ChangeTrackingTest extends BaseTest {
+
+    private static DataManager dataManager;
+
+    private static Config createConfig() {
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:changes;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        config.setString("database.changeTracking", "true");
+        config.setString("database.selectChanges",
+                "SELECT * FROM changes WHERE id > :id AND objectType = :objectType ORDER BY id");
+        config.setString("database.selectLastChange", "SELECT MAX(id) AS id FROM changes");
+        config.setString("database.deleteChanges", "DELETE FROM changes WHERE changeTime < :changeTime");
+        return config;
+    }
+
+    @BeforeClass
+    public static void init() throws Exception {
+        dataManager = new DataManager(createConfig());
+    }
+
+    private static Driver createDriver(String uniqueId) {
+        Driver driver = new Driver();
+        driver.setName(uniqueId);
+        driver.setUniqueId(uniqueId);
+        return driver;
+    }
+
+    @Test
+    public void testRefreshChanges() throws Exception {
+
+        BaseObjectManager<Driver> first = new BaseObjectManager<Driver>(dataManager, Driver.class) {
+        };
+        BaseObjectManager<Driver> second = new BaseObjectManager<Driver>(dataManager, Driver.class) {
+        };
+
+        Driver driver = createDriver("changes1");
+        first.addItem(driver);
+        Assert.assertNull(second.getById(driver.getId()));
+        Assert.assertTrue(second.refreshChanges());
+        Assert.assertEquals("changes1", second.getById(driver.getId()).getName());
+
+        driver.setName("updated");
+        first.updateItem(driver);
+        Assert.assertFalse(second.refreshChanges());
+        Assert.assertEquals("updated", second.getById(driver.getId()).getName());
+
+        first.removeItem(driver.getId());
+        Assert.assertTrue(second.refreshChanges());
+        Assert.assertNull(second.getById(driver.getId()));
+
+        Assert.assertFalse(second.refreshChanges());
+
+        // Rows written outside of the application are only picked up by full reload
+        QueryBuilder.create(dataManager.getDataSource(),
+                "INSERT INTO drivers (name, uniqueId, attributes) VALUES ('external', 'external', '{}')")
+                .executeUpdate();
+        second.refreshChanges();
+        Assert.assertEquals(0, second.getAllItems().size());
+        second.refreshItems();
+        Assert.assertEquals(1, second.getAllItems().size());
+    }
+
+    @Test
+    public void testLateChange() throws Exception {
+
+        BaseObjectManager<Driver> first = new BaseObjectManager<Driver>(dataManager, Driver.class) {
+        };
+        BaseObjectManager<Driver> second = new BaseObjectManager<Driver>(dataManager, Driver.class) {
+        };
+
+        Driver late = createDriver("late");
+        first.addItem(late);
+        long lateChangeId = dataManager.getLastChangeId();
+        Driver early = createDriver("early");
+        first.addItem(early);
+
+        // Change with lower id is not committed yet when the higher one is read
+        QueryBuilder.create(dataManager.getDataSource(), "DELETE FROM changes WHERE id = :id")
+                .setLong("id", lateChangeId)
+                .executeUpdate();
+        Assert.assertTrue(second.refreshChanges());
+        Assert.assertNotNull(second.getById(early.getId()));
+        Assert.assertNull(second.getById(late.getId()));
+
+        Change change = new Change();
+        change.setId(lateChangeId);
+        change.setObjectType(Driver.class.getSimpleName());
+        change.setObjectId(late.getId());
+        change.setChangeTime(new Date());
+        QueryBuilder.create(dataManager.getDataSource(),
+                "INSERT INTO changes (id, objectType, objectId, changeTime) "
+                + "VALUES (:id, :objectType, :objectId, :changeTime)")
+                .setObject(change)
+                .executeUpdate();
+        Assert.assertTrue(second.refreshChanges());
+        Assert.assertNotNull(second.getById(late.getId()));
+
+        Assert.assertFalse(second.refreshChanges());
+
+        first.removeItem(late.getId());
+        first.removeItem(early.getId());
+    }
+
+    @Test
+    public void testFullRefresh() throws Exception {
+
+        Config config = createConfig();
+        config.setString("database.url", "jdbc:h2:mem:reload;DB_CLOSE_DELAY=-1");
+        config.setString("database.fullRefreshDelay", "0");
+        DataManager reloadingDataManager = new DataManager(config);
+
+        BaseObjectManager<Driver> manager = new BaseObjectManager<Driver>(reloadingDataManager, Driver.class) {
+        };
+        QueryBuilder.create(reloadingDataManager.getDataSource(),
+                "INSERT INTO drivers (name, uniqueId, attributes) VALUES ('direct', 'direct', '{}')")
+                .executeUpdate();
+        Thread.sleep(10);
+        Assert.assertTrue(manager.refreshChanges());
+        Assert.assertEquals(1, manager.getAllItems().size());
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.Config;
+import org.traccar.model.Device;
+
+public class DeviceManagerTest extends BaseTest {
+
+    private static Device createDevice(String uniqueId) {
+        Device device = new Device();
+        device.setName(uniqueId);
+        device.setUniqueId(uniqueId);
+        return device;
+    }
+
+    @Test
+    public void testLookupUniqueId() throws Exception {
+
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:devices;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        config.setString("database.selectLatestPositions", "SELECT * FROM positions WHERE id = 0");
+        DataManager dataManager = new DataManager(config);
+
+        dataManager.addObject(createDevice("100"));
+        DeviceManager deviceManager = new DeviceManager(dataManager);
+
+        Device numeric = createDevice("123");
+        Device padded = createDevice("0123");
+        Device text = createDevice("abc");
+        deviceManager.addItem(numeric);
+        deviceManager.addItem(padded);
+        deviceManager.addItem(text);
+
+        Assert.assertEquals("100", deviceManager.getByUniqueId("100").getName());
+        Assert.assertEquals(numeric.getId(), deviceManager.getByUniqueId("123").getId());
+        Assert.assertEquals(padded.getId(), deviceManager.getByUniqueId("0123").getId());
+        Assert.assertEquals(text.getId(), deviceManager.getByUniqueId("abc").getId());
+
+        deviceManager.removeItem(numeric.getId());
+        Assert.assertNull(deviceManager.getByUniqueId("123"));
+        Assert.assertEquals(padded.getId(), deviceManager.getByUniqueId("0123").getId());
+
+        // Device added behind the cache is found by the full refresh a miss triggers
+        dataManager.addObject(createDevice("456"));
+        Assert.assertEquals("456", deviceManager.getByUniqueId("456").getName());
+        Assert.assertEquals("100", deviceManager.getByUniqueId("100").getName());
+    }
+
+}
@@ -0,0 +1,212 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.Config;
+import org.traccar.Context;
+import org.traccar.model.BaseModel;
+import org.traccar.model.Device;
+import org.traccar.model.Geofence;
+import org.traccar.model.Group;
+import org.traccar.model.Permission;
+import org.traccar.model.Server;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class GeofenceManagerTest extends BaseTest {
+
+    private static Permission createPermission(String owner, long ownerId, String property, long propertyId)
+            throws ClassNotFoundException {
+        LinkedHashMap<String, Long> keys = new LinkedHashMap<>();
+        keys.put(owner, ownerId);
+        keys.put(property, propertyId);
+        return new Permission(keys);
+    }
+
+    private static Object setContextField(String name, Object value) throws Exception {
+        Field field = Context.class.getDeclaredField(name);
+        field.setAccessible(true);
+        Object previous = field.get(null);
+        field.set(null, value);
+        return previous;
+    }
+
+    private static Set<Long> toSet(List<Long> values) {
+        return new HashSet<>(values);
+    }
+
+    // Devices without geofence ids have not been recalculated since last reset
+    private static Set<Long> takeRecalculated(DeviceManager deviceManager) {
+        Set<Long> result = new HashSet<>();
+        for (Device device : deviceManager.getAllDevices()) {
+            if (device.getGeofenceIds() != null) {
+                result.add(device.getId());
+                device.setGeofenceIds(null);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testDeviceItemsChanged() throws Exception {
+
+        final List<Group> groups = new ArrayList<>();
+        Group group = new Group();
+        group.setId(10);
+        group.setName("group");
+        groups.add(group);
+
+        // Devices 1 and 2 belong to the group, 3 and 4 do not
+        final List<Device> devices = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            Device device = new Device();
+            device.setId(i);
+            device.setName("device" + i);
+            device.setUniqueId("geofence" + i);
+            device.setGroupId(i <= 2 ? 10 : 0);
+            devices.add(device);
+        }
+
+        final List<Geofence> geofences = new ArrayList<>();
+        for (int i = 100; i <= 101; i++) {
+            Geofence geofence = new Geofence();
+            geofence.setId(i);
+            geofence.setName("geofence" + i);
+            geofence.setArea("CIRCLE (55.75 37.61, 500)");
+            geofences.add(geofence);
+        }
+
+        final List<Permission> devicePermissions = new ArrayList<>();
+        devicePermissions.add(createPermission("deviceId", 3, "geofenceId", 100));
+        final List<Permission> groupPermissions = new ArrayList<>();
+
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:geofences;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        DataManager dataManager = new DataManager(config) {
+            @Override
+            public Server getServer() {
+                return new Server();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends BaseModel> Collection<T> getObjects(Class<T> clazz) throws SQLException {
+                if (clazz.equals(Device.class)) {
+                    return (Collection<T>) devices;
+                } else if (clazz.equals(Group.class)) {
+                    return (Collection<T>) groups;
+                } else if (clazz.equals(Geofence.class)) {
+                    return (Collection<T>) new ArrayList<>(geofences);
+                }
+                return super.getObjects(clazz);
+            }
+
+            @Override
+            public Collection<Permission> getPermissions(
+                    Class<? extends BaseModel> owner, Class<? extends BaseModel> property) {
+                if (property.equals(Geofence.class) && owner.equals(Device.class)) {
+                    return new ArrayList<>(devicePermissions);
+                } else if (property.equals(Geofence.class) && owner.equals(Group.class)) {
+                    return new ArrayList<>(groupPermissions);
+                }
+                return Collections.emptyList();
+            }
+
+            @Override
+            public void removeObject(Class<? extends BaseModel> clazz, long entityId) {
+                // Permissions of removed geofence go away with it
+                for (List<Permission> permissions : Arrays.asList(devicePermissions, groupPermissions)) {
+                    Iterator<Permission> iterator = permissions.iterator();
+                    while (iterator.hasNext()) {
+                        if (iterator.next().getPropertyId() == entityId) {
+                            iterator.remove();
+                        }
+                    }
+                }
+                Iterator<Geofence> iterator = geofences.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().getId() == entityId) {
+                        iterator.remove();
+                    }
+                }
+            }
+        };
+
+        GroupsManager groupsManager = new GroupsManager(dataManager);
+        DeviceManager deviceManager = new DeviceManager(dataManager);
+        Object previousGroupsManager = setContextField("groupsManager", groupsManager);
+        Object previousDeviceManager = setContextField("deviceManager", deviceManager);
+        Object previousPermissionsManager = setContextField(
+                "permissionsManager", new PermissionsManager(dataManager, null));
+        try {
+            final List<Long> changed = new ArrayList<>();
+            GeofenceManager geofenceManager = new GeofenceManager(dataManager) {
+                @Override
+                protected void deviceItemsChanged(long[] deviceIds) {
+                    for (long deviceId : deviceIds) {
+                        changed.add(deviceId);
+                    }
+                    super.deviceItemsChanged(deviceIds);
+                }
+            };
+            Assert.assertEquals(Collections.singleton(3L), toSet(changed));
+            Assert.assertEquals(Collections.singleton(3L), takeRecalculated(deviceManager));
+            changed.clear();
+
+            Permission devicePermission = createPermission("deviceId", 4, "geofenceId", 101);
+            devicePermissions.add(devicePermission);
+            geofenceManager.linkExtendedPermission(devicePermission, true);
+            Assert.assertEquals(Collections.singleton(4L), toSet(changed));
+            Assert.assertEquals(Collections.singleton(4L), takeRecalculated(deviceManager));
+            Assert.assertEquals(Collections.singleton(101L), geofenceManager.getAllDeviceItems(4));
+            changed.clear();
+
+            Permission groupPermission = createPermission("groupId", 10, "geofenceId", 100);
+            groupPermissions.add(groupPermission);
+            geofenceManager.linkExtendedPermission(groupPermission, true);
+            Assert.assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), toSet(changed));
+            Assert.assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), takeRecalculated(deviceManager));
+            Assert.assertEquals(Collections.singleton(100L), geofenceManager.getAllDeviceItems(2));
+            changed.clear();
+
+            // Full refresh of unchanged permissions does not touch any device
+            geofenceManager.refreshExtendedPermissions();
+            Assert.assertTrue(changed.isEmpty());
+            Assert.assertTrue(takeRecalculated(deviceManager).isEmpty());
+
+            geofenceManager.removeItem(101);
+            Assert.assertEquals(Collections.singleton(4L), toSet(changed));
+            Assert.assertEquals(Collections.singleton(4L), takeRecalculated(deviceManager));
+            Assert.assertTrue(geofenceManager.getAllDeviceItems(4).isEmpty());
+            changed.clear();
+
+            groupPermissions.remove(groupPermission);
+            geofenceManager.linkExtendedPermission(groupPermission, false);
+            Assert.assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), toSet(changed));
+            Assert.assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), takeRecalculated(deviceManager));
+            Assert.assertTrue(geofenceManager.getAllDeviceItems(1).isEmpty());
+            Assert.assertEquals(Collections.singleton(100L), geofenceManager.getAllDeviceItems(3));
+        } finally {
+            setContextField("groupsManager", previousGroupsManager);
+            setContextField("deviceManager", previousDeviceManager);
+            setContextField("permissionsManager", previousPermissionsManager);
+        }
+    }
+
+}
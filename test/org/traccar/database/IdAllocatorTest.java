@@ -0,0 +1,120 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.Config;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class IdAllocatorTest extends BaseTest {
+
+    private static DataManager dataManager;
+    private static long deviceId;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:allocator;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        config.setString("database.idAllocator.enable", "true");
+        config.setString("database.idAllocator.blockSize", "10");
+        config.setString("database.selectPositions",
+                "SELECT * FROM positions WHERE deviceId = :deviceId AND fixTime BETWEEN :from AND :to ORDER BY id");
+        dataManager = new DataManager(config);
+
+        Device device = new Device();
+        device.setName("allocator");
+        device.setUniqueId("allocator");
+        dataManager.addObject(device);
+        deviceId = device.getId();
+    }
+
+    private static Position createPosition(long time) {
+        Position position = new Position();
+        position.setProtocol("test");
+        position.setDeviceId(deviceId);
+        position.setValid(true);
+        position.setTime(new Date(time));
+        return position;
+    }
+
+    @Test
+    public void testAllocate() throws Exception {
+
+        IdAllocator first = new IdAllocator(dataManager.getDataSource(), "positions", 3);
+        IdAllocator second = new IdAllocator(dataManager.getDataSource(), "positions", 3);
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(ids.add(first.nextId()));
+            Assert.assertTrue(ids.add(second.nextId()));
+        }
+    }
+
+    @Test
+    public void testReserveFirstBlock() throws Exception {
+
+        IdAllocator allocator = new IdAllocator(dataManager.getDataSource(), "positions", 4);
+        allocator.reserveFirstBlock();
+
+        long id = allocator.tryNextId();
+        Assert.assertNotEquals(0, id);
+        Assert.assertEquals(id + 1, allocator.tryNextId());
+    }
+
+    @Test
+    public void testTryNextId() throws Exception {
+
+        IdAllocator allocator = new IdAllocator(dataManager.getDataSource(), "positions", 4);
+
+        Assert.assertEquals(0, allocator.tryNextId());
+
+        Set<Long> ids = new HashSet<>();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ids.size() < 20 && System.currentTimeMillis() < deadline) {
+            long id = allocator.tryNextId();
+            if (id != 0) {
+                Assert.assertTrue(ids.add(id));
+            } else {
+                Thread.sleep(10);
+            }
+        }
+        Assert.assertEquals(20, ids.size());
+        Assert.assertTrue(ids.add(allocator.nextId()));
+    }
+
+    @Test
+    public void testAddPositions() throws Exception {
+
+        Position single = createPosition(100000);
+        dataManager.addPosition(single);
+        Assert.assertNotEquals(0, single.getId());
+
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            positions.add(createPosition(101000 + i * 1000));
+        }
+        dataManager.addPositions(positions);
+
+        List<Position> stored = new ArrayList<>(
+                dataManager.getPositions(deviceId, new Date(100000), new Date(200000)));
+        Assert.assertEquals(16, stored.size());
+        Assert.assertEquals(single.getId(), stored.get(0).getId());
+        for (int i = 0; i < positions.size(); i++) {
+            Assert.assertEquals(positions.get(i).getId(), stored.get(i + 1).getId());
+        }
+    }
+
+}
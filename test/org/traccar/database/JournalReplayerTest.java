@@ -0,0 +1,83 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.traccar.BaseTest;
+import org.traccar.Config;
+import org.traccar.Context;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class JournalReplayerTest extends BaseTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Position createPosition(long deviceId, long time) {
+        Position position = new Position();
+        position.setProtocol("test");
+        position.setDeviceId(deviceId);
+        position.setValid(true);
+        position.setTime(new Date(time));
+        return position;
+    }
+
+    @Test
+    public void testReplayStoredBatch() throws Exception {
+
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:replayer;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        config.setString("database.idAllocator.enable", "true");
+        config.setString("database.selectPositions",
+                "SELECT * FROM positions WHERE deviceId = :deviceId AND fixTime BETWEEN :from AND :to ORDER BY id");
+        DataManager dataManager = new DataManager(config);
+
+        Device device = new Device();
+        device.setName("replayer");
+        device.setUniqueId("replayer");
+        dataManager.addObject(device);
+
+        // Simulate a crash after the first two positions were stored, but before the journal was committed
+        PositionJournal journal = new PositionJournal(
+                folder.newFolder(), 1024 * 1024, PositionJournal.FSYNC_NONE, 0, 4);
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Position position = createPosition(device.getId(), i * 1000);
+            position.setServerTime(new Date(100000 + i * 1000));
+            dataManager.allocatePositionId(position);
+            journal.append(Context.getObjectMapper().writeValueAsBytes(position));
+            positions.add(position);
+        }
+        dataManager.addPositions(positions.subList(0, 2));
+
+        JournalReplayer replayer = new JournalReplayer(dataManager, journal, 10, 10);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!journal.isEmpty() || replayer.getReplayedCount() == 0) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        replayer.stop();
+
+        Assert.assertEquals(0, replayer.getFailedCount());
+        Assert.assertEquals(0, replayer.getQuarantinedCount());
+        List<Position> stored = new ArrayList<>(
+                dataManager.getPositions(device.getId(), new Date(0), new Date(4000)));
+        Assert.assertEquals(5, stored.size());
+        for (int i = 0; i < stored.size(); i++) {
+            Assert.assertEquals(positions.get(i).getId(), stored.get(i).getId());
+            Assert.assertEquals(positions.get(i).getServerTime(), stored.get(i).getServerTime());
+        }
+    }
+
+}
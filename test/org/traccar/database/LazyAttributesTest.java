@@ -0,0 +1,47 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.Context;
+import org.traccar.model.Position;
+
+public class LazyAttributesTest extends BaseTest {
+
+    @Test
+    public void testLazyParsing() throws Exception {
+        LazyAttributes attributes = new LazyAttributes("{\"ignition\":true, \"odometer\":100}");
+        Assert.assertFalse(attributes.isParsed());
+
+        Position position = new Position();
+        position.setAttributes(attributes);
+        Assert.assertTrue(position.getBoolean("ignition"));
+        Assert.assertEquals(100, position.getLong("odometer"));
+        Assert.assertTrue(attributes.isParsed());
+    }
+
+    @Test
+    public void testRawSerialization() throws Exception {
+        Position position = new Position();
+        position.setAttributes(new LazyAttributes("{\"ignition\":true, \"odometer\":100}"));
+        String json = Context.getObjectMapper().writeValueAsString(position);
+        Assert.assertTrue(json.contains("\"attributes\":{\"ignition\":true, \"odometer\":100}"));
+
+        position.getBoolean("ignition");
+        json = Context.getObjectMapper().writeValueAsString(position);
+        Assert.assertTrue(json.contains("\"attributes\":{\"ignition\":true, \"odometer\":100}"));
+
+        position.set("fuel", 10.0);
+        json = Context.getObjectMapper().writeValueAsString(position);
+        Assert.assertTrue(json.contains("\"attributes\":{\"ignition\":true,\"odometer\":100,\"fuel\":10.0}"));
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        Position position = new Position();
+        position.setAttributes(new LazyAttributes("<xml/>"));
+        Assert.assertFalse(position.getBoolean("ignition"));
+        Assert.assertTrue(Context.getObjectMapper().writeValueAsString(position).contains("\"attributes\":{}"));
+    }
+
+}
@@ -0,0 +1,262 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.Config;
+import org.traccar.Context;
+import org.traccar.model.BaseModel;
+import org.traccar.model.Device;
+import org.traccar.model.Group;
+import org.traccar.model.Permission;
+import org.traccar.model.Server;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PermissionsManagerTest extends BaseTest {
+
+    private static final int DEVICES = 200;
+
+    private static Permission createPermission(String owner, long ownerId, String property, long propertyId)
+            throws ClassNotFoundException {
+        LinkedHashMap<String, Long> keys = new LinkedHashMap<>();
+        keys.put(owner, ownerId);
+        keys.put(property, propertyId);
+        return new Permission(keys);
+    }
+
+    private static PermissionIndex createIndex(boolean grouped) throws ClassNotFoundException {
+        Collection<Group> groups = new ArrayList<>();
+        Group group = new Group();
+        group.setId(1);
+        groups.add(group);
+
+        Collection<Device> devices = new ArrayList<>();
+        for (int i = 1; i <= DEVICES; i++) {
+            Device device = new Device();
+            device.setId(i);
+            device.setGroupId(i > DEVICES / 2 ? 1 : 0);
+            devices.add(device);
+        }
+
+        // User 1 always sees first half directly, second half only through the group
+        Collection<Permission> devicePermissions = new ArrayList<>();
+        for (int i = 1; i <= DEVICES / 2; i++) {
+            devicePermissions.add(createPermission("userId", 1, "deviceId", i));
+        }
+        Collection<Permission> groupPermissions = new ArrayList<>();
+        if (grouped) {
+            groupPermissions.add(createPermission("userId", 1, "groupId", 1));
+        }
+        return PermissionIndex.build(groups, devices, groupPermissions, devicePermissions);
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+        PermissionIndex index = createIndex(true);
+        Assert.assertEquals(DEVICES, index.getDevicePermissions(1).size());
+        Assert.assertEquals(1, index.getGroupPermissions(1).size());
+        Assert.assertEquals(DEVICES / 2, index.getGroupDevices(1).size());
+        Assert.assertTrue(index.getDeviceUsers(DEVICES).contains(1L));
+        Assert.assertTrue(index.getDeviceUsers(DEVICES + 1).isEmpty());
+    }
+
+    @Test
+    public void testIncremental() throws Exception {
+
+        Collection<Group> groups = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            Group group = new Group();
+            group.setId(i);
+            group.setGroupId(i % 3 == 1 ? 0 : i - 1);
+            groups.add(group);
+        }
+
+        Collection<Device> devices = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) {
+            Device device = new Device();
+            device.setId(i);
+            device.setGroupId(i % 7);
+            devices.add(device);
+        }
+
+        List<Permission> groupPermissions = new ArrayList<>();
+        List<Permission> devicePermissions = new ArrayList<>();
+        PermissionIndex index = PermissionIndex.build(groups, devices, groupPermissions, devicePermissions);
+
+        Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            long userId = 1 + random.nextInt(3);
+            boolean group = random.nextBoolean();
+            long propertyId = group ? 1 + random.nextInt(7) : 1 + random.nextInt(31);
+            Permission permission = createPermission("userId", userId, group ? "groupId" : "deviceId", propertyId);
+            List<Permission> permissions = group ? groupPermissions : devicePermissions;
+
+            boolean link = true;
+            for (Permission existing : permissions) {
+                if (existing.getOwnerId() == userId && existing.getPropertyId() == propertyId) {
+                    permissions.remove(existing);
+                    link = false;
+                    break;
+                }
+            }
+            if (link) {
+                permissions.add(permission);
+            }
+
+            if (group) {
+                index = index.withGroupPermission(userId, propertyId, link);
+            } else {
+                index = index.withDevicePermission(userId, propertyId, link);
+            }
+
+            PermissionIndex expected = PermissionIndex.build(groups, devices, groupPermissions, devicePermissions);
+            for (long id = 1; id <= 31; id++) {
+                Assert.assertEquals(expected.getGroupPermissions(id), index.getGroupPermissions(id));
+                Assert.assertEquals(expected.getDevicePermissions(id), index.getDevicePermissions(id));
+                Assert.assertEquals(expected.getDeviceUsers(id), index.getDeviceUsers(id));
+                Assert.assertEquals(expected.getGroupDevices(id), index.getGroupDevices(id));
+            }
+        }
+    }
+
+    private static Object setContextField(String name, Object value) throws Exception {
+        Field field = Context.class.getDeclaredField(name);
+        field.setAccessible(true);
+        Object previous = field.get(null);
+        field.set(null, value);
+        return previous;
+    }
+
+    @Test
+    public void testConcurrentRefresh() throws Exception {
+
+        final List<Group> groups = new ArrayList<>();
+        Group group = new Group();
+        group.setId(1);
+        groups.add(group);
+
+        final List<Device> devices = new ArrayList<>();
+        for (int i = 1; i <= DEVICES; i++) {
+            Device device = new Device();
+            device.setId(i);
+            device.setUniqueId(String.valueOf(i));
+            device.setGroupId(i > DEVICES / 2 ? 1 : 0);
+            devices.add(device);
+        }
+
+        // User 1 always sees first half directly, second half only while group permission is linked
+        final List<Permission> devicePermissions = new ArrayList<>();
+        for (int i = 1; i <= DEVICES / 2; i++) {
+            devicePermissions.add(createPermission("userId", 1, "deviceId", i));
+        }
+        final List<Permission> groupPermissions = Collections.singletonList(
+                createPermission("userId", 1, "groupId", 1));
+        final AtomicBoolean grouped = new AtomicBoolean();
+
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:permissions;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        DataManager dataManager = new DataManager(config) {
+            @Override
+            public Server getServer() {
+                return new Server();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends BaseModel> Collection<T> getObjects(Class<T> clazz) throws SQLException {
+                if (clazz.equals(Device.class)) {
+                    return (Collection<T>) devices;
+                } else if (clazz.equals(Group.class)) {
+                    return (Collection<T>) groups;
+                }
+                return super.getObjects(clazz);
+            }
+
+            @Override
+            public Collection<Permission> getPermissions(
+                    Class<? extends BaseModel> owner, Class<? extends BaseModel> property) {
+                if (property.equals(Group.class)) {
+                    return grouped.get() ? groupPermissions : Collections.<Permission>emptyList();
+                }
+                return devicePermissions;
+            }
+        };
+
+        Object previousGroupsManager = setContextField("groupsManager", new GroupsManager(dataManager));
+        Object previousDeviceManager = setContextField("deviceManager", new DeviceManager(dataManager));
+        try {
+            final PermissionsManager permissionsManager = new PermissionsManager(dataManager, null);
+            Assert.assertEquals(DEVICES / 2, permissionsManager.getDevicePermissions(1).size());
+
+            final AtomicBoolean running = new AtomicBoolean(true);
+            final AtomicReference<String> failure = new AtomicReference<>();
+
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                threads.add(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (running.get() && failure.get() == null) {
+                            int size = permissionsManager.getDevicePermissions(1).size();
+                            if (size != DEVICES / 2 && size != DEVICES) {
+                                failure.set("Torn device permissions: " + size);
+                            }
+                            if (!permissionsManager.getDeviceUsers(1).contains(1L)) {
+                                failure.set("Missing device user");
+                            }
+                            PermissionIndex index = permissionsManager.getPermissionIndex();
+                            boolean linked = index.getGroupPermissions(1).contains(1L);
+                            if (index.getDeviceUsers(DEVICES).contains(1L) != linked
+                                    || index.getDevicePermissions(1).size() != (linked ? DEVICES : DEVICES / 2)
+                                    || index.getGroupDevices(1).size() != DEVICES / 2) {
+                                failure.set("Inconsistent snapshot");
+                            }
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 2; i++) {
+                threads.add(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < 1000 && failure.get() == null; j++) {
+                            grouped.set(!grouped.get());
+                            permissionsManager.refreshDeviceAndGroupPermissions();
+                        }
+                        running.set(false);
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertNull(failure.get(), failure.get());
+
+            grouped.set(true);
+            permissionsManager.refreshDeviceAndGroupPermissions();
+            Assert.assertEquals(DEVICES, permissionsManager.getDevicePermissions(1).size());
+        } finally {
+            setContextField("groupsManager", previousGroupsManager);
+            setContextField("deviceManager", previousDeviceManager);
+        }
+    }
+
+}
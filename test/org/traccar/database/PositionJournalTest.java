@@ -0,0 +1,156 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class PositionJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] record(long index) {
+        return ("record-" + index).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static long index(byte[] record) {
+        return Long.parseLong(new String(record, StandardCharsets.US_ASCII).substring(7));
+    }
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+
+        File directory = folder.newFolder();
+        PositionJournal journal = new PositionJournal(directory, 1024, PositionJournal.FSYNC_NONE, 0, 10);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(journal.append(record(i)));
+        }
+        Assert.assertTrue(journal.getSegmentCount() > 1);
+        Assert.assertFalse(journal.append(new byte[2048]));
+
+        List<byte[]> records = journal.read(40);
+        Assert.assertEquals(40, records.size());
+        Assert.assertEquals(0, index(records.get(0)));
+        journal.commit();
+
+        records = journal.read(100);
+        Assert.assertEquals(60, records.size());
+        Assert.assertEquals(40, index(records.get(0)));
+
+        journal.rewind();
+        records = journal.read(100);
+        Assert.assertEquals(60, records.size());
+        Assert.assertTrue(journal.isEmpty());
+        journal.close();
+
+        journal = new PositionJournal(directory, 1024, PositionJournal.FSYNC_NONE, 0, 10);
+        records = journal.read(100);
+        Assert.assertEquals(60, records.size());
+        Assert.assertEquals(40, index(records.get(0)));
+        journal.commit();
+        Assert.assertEquals(1, journal.getSegmentCount());
+        journal.close();
+
+        journal = new PositionJournal(directory, 1024, PositionJournal.FSYNC_NONE, 0, 10);
+        Assert.assertTrue(journal.isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void testBacklog() throws Exception {
+
+        PositionJournal journal = new PositionJournal(folder.newFolder(), 1024, PositionJournal.FSYNC_NONE, 0, 10);
+        Assert.assertEquals(0, journal.getBacklog());
+
+        // Record is eight bytes of header plus nine or ten bytes of data
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(journal.append(record(i + 10)));
+        }
+        long backlog = journal.getBacklog();
+        Assert.assertTrue(backlog >= 100 * 17 && backlog < 100 * 18 + 1024);
+
+        journal.read(40);
+        Assert.assertEquals(backlog, journal.getBacklog());
+        journal.commit();
+        Assert.assertTrue(journal.getBacklog() < backlog);
+
+        journal.read(100);
+        journal.commit();
+        Assert.assertEquals(0, journal.getBacklog());
+        journal.close();
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+
+        PositionJournal journal = new PositionJournal(folder.newFolder(), 1024, PositionJournal.FSYNC_NONE, 0, 2);
+
+        for (int i = 0; i < 1000; i++) {
+            journal.append(record(i));
+        }
+        Assert.assertEquals(2, journal.getSegmentCount());
+
+        List<byte[]> records = journal.read(1000);
+        Assert.assertFalse(records.isEmpty());
+        Assert.assertEquals(999, index(records.get(records.size() - 1)));
+        journal.close();
+    }
+
+    @Test
+    public void testCrashRecovery() throws Exception {
+
+        File directory = folder.newFolder();
+
+        Process process = new ProcessBuilder(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"),
+                PositionJournalTest.class.getName(), directory.getAbsolutePath())
+                .redirectErrorStream(true)
+                .start();
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+        Assert.assertEquals("ready", reader.readLine());
+        Thread.sleep(200);
+
+        // Kill the writer while it is still appending
+        process.destroy();
+        process.waitFor();
+
+        PositionJournal journal = new PositionJournal(directory, 64 * 1024, PositionJournal.FSYNC_NONE, 0, 16);
+
+        List<byte[]> records = journal.read(Integer.MAX_VALUE);
+        Assert.assertTrue(records.size() >= 1000);
+        long expected = index(records.get(0));
+        for (byte[] record : records) {
+            Assert.assertEquals(expected++, index(record));
+        }
+
+        Assert.assertTrue(journal.append(record(expected)));
+        records = journal.read(10);
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals(expected, index(records.get(0)));
+        journal.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        PositionJournal journal = new PositionJournal(
+                new File(args[0]), 64 * 1024, PositionJournal.FSYNC_NONE, 0, 16);
+        for (long i = 0;; i++) {
+            journal.append(record(i));
+            if (i == 1000) {
+                System.out.println("ready");
+                System.out.flush();
+            }
+        }
+    }
+
+}
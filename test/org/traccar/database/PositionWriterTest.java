@@ -0,0 +1,140 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.Config;
+import org.traccar.model.Device;
+import org.traccar.model.Position;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class PositionWriterTest extends BaseTest {
+
+    private static DataManager dataManager;
+    private static long deviceId;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:writer;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        config.setString("database.selectPositions",
+                "SELECT * FROM positions WHERE deviceId = :deviceId AND fixTime BETWEEN :from AND :to ORDER BY id");
+        dataManager = new DataManager(config);
+
+        Device device = new Device();
+        device.setName("writer");
+        device.setUniqueId("writer");
+        dataManager.addObject(device);
+        deviceId = device.getId();
+    }
+
+    private static Position createPosition(long time) {
+        Position position = new Position();
+        position.setProtocol("test");
+        position.setDeviceId(deviceId);
+        position.setValid(true);
+        position.setTime(new Date(time));
+        return position;
+    }
+
+    @Test
+    public void testRejectedPosition() throws Exception {
+
+        Config config = new Config();
+        config.setString("database.driver", "org.h2.Driver");
+        config.setString("database.url", "jdbc:h2:mem:writerRejected;DB_CLOSE_DELAY=-1");
+        config.setString("database.user", "sa");
+        config.setString("database.password", "");
+        config.setString("database.changelog", "./schema/changelog-master.xml");
+        config.setString("database.generateQueries", "true");
+        config.setString("database.writer.enable", "true");
+        config.setString("database.selectPositions",
+                "SELECT * FROM positions WHERE deviceId = :deviceId AND fixTime BETWEEN :from AND :to ORDER BY id");
+        DataManager dataManager = new DataManager(config);
+        Assert.assertTrue(dataManager.hasPositionIdAllocator());
+
+        Device device = new Device();
+        device.setName("rejected");
+        device.setUniqueId("rejected");
+        dataManager.addObject(device);
+
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Position position = createPosition(i * 1000);
+            position.setDeviceId(device.getId());
+            dataManager.allocatePositionId(position);
+            positions.add(position);
+        }
+        dataManager.addPosition(positions.get(0));
+        Position unknown = createPosition(5000);
+        unknown.setDeviceId(device.getId() + 1000);
+        positions.add(unknown);
+
+        PositionWriter writer = new PositionWriter(dataManager, 1, 10, 1000, 100);
+        for (Position position : positions) {
+            Assert.assertTrue(writer.write(position));
+        }
+        writer.stop();
+
+        Assert.assertEquals(5, writer.getStoredCount());
+        Assert.assertEquals(1, writer.getFailedCount());
+        List<Position> stored = new ArrayList<>(
+                dataManager.getPositions(device.getId(), new Date(0), new Date(5000)));
+        Assert.assertEquals(5, stored.size());
+        for (int i = 0; i < stored.size(); i++) {
+            Assert.assertEquals(positions.get(i).getId(), stored.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testCapacity() throws Exception {
+
+        // Capacity is shared, so a single device can use all of it
+        PositionWriter writer = new PositionWriter(dataManager, 2, 10, 1000, 4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(writer.write(createPosition(100000 + i * 1000)));
+        }
+        Assert.assertEquals(4, writer.getQueueSize());
+        Assert.assertFalse(writer.write(createPosition(200000)));
+
+        writer.stop();
+        Assert.assertEquals(0, writer.getQueueSize());
+        Assert.assertEquals(4, writer.getStoredCount());
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+
+        PositionWriter writer = new PositionWriter(dataManager, 2, 10, 50, 1000);
+
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Position position = createPosition(i * 1000);
+            positions.add(position);
+            Assert.assertTrue(writer.write(position));
+        }
+
+        writer.stop();
+
+        Assert.assertEquals(0, writer.getQueueSize());
+        Assert.assertEquals(25, writer.getStoredCount());
+        Assert.assertEquals(0, writer.getFailedCount());
+        Assert.assertFalse(writer.write(createPosition(0)));
+
+        List<Position> stored = new ArrayList<>(dataManager.getPositions(deviceId, new Date(0), new Date(24000)));
+        Assert.assertEquals(25, stored.size());
+        for (int i = 0; i < stored.size(); i++) {
+            Assert.assertEquals(positions.get(i).getFixTime(), stored.get(i).getFixTime());
+        }
+    }
+
+}
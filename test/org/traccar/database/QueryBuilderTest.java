@@ -0,0 +1,179 @@
+package org.traccar.database;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.traccar.BaseTest;
+import org.traccar.model.Position;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class QueryBuilderTest extends BaseTest {
+
+    private static JdbcDataSource dataSource;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:query;DB_CLOSE_DELAY=-1");
+        QueryBuilder.create(dataSource, "CREATE TABLE positions ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY, deviceId INT, fixTime TIMESTAMP, "
+                + "latitude DOUBLE, valid BOOLEAN, protocol VARCHAR(128), attributes VARCHAR(4000))")
+                .executeUpdate();
+        for (int i = 0; i < 10; i++) {
+            QueryBuilder.create(dataSource, "INSERT INTO positions (deviceId, fixTime, latitude, valid, protocol, "
+                    + "attributes) VALUES (:deviceId, :fixTime, :latitude, :valid, ':protocol', :attributes)")
+                    .setLong("deviceId", i % 2 + 1)
+                    .setDate("fixTime", new Date(i * 1000))
+                    .setDouble("latitude", i)
+                    .setBoolean("valid", true)
+                    .setString("attributes", "{\"index\":" + i + "}")
+                    .executeUpdate();
+        }
+    }
+
+    @Test
+    public void testParameterValues() throws Exception {
+
+        Position position = new Position();
+        position.setProtocol("test");
+        position.set("index", 1);
+
+        QueryBuilder.ParameterBinder[] binders = QueryBuilder.getParameterBinders(
+                Position.class, Arrays.asList("deviceId", "protocol", "attributes", "unknown"));
+        Assert.assertNull(binders[0].getValue(position, false));
+        Assert.assertEquals("test", binders[1].getValue(position, false));
+        Assert.assertEquals("{\"index\":1}", binders[2].getValue(position, false));
+        Assert.assertNull(binders[3]);
+    }
+
+    @Test
+    public void testRepeatedParameter() throws Exception {
+        String query = "SELECT * FROM positions WHERE deviceId = :deviceId OR id = :deviceId ORDER BY id";
+        for (int i = 0; i < 2; i++) {
+            List<Position> positions = new ArrayList<>(QueryBuilder.create(dataSource, query)
+                    .setLong("deviceId", 1)
+                    .executeQuery(Position.class));
+            Assert.assertEquals(5, positions.size());
+            Assert.assertEquals(":protocol", positions.get(0).getProtocol());
+        }
+    }
+
+    @Test
+    public void testRowMapper() throws Exception {
+        List<Position> positions = new ArrayList<>(QueryBuilder.create(dataSource,
+                "SELECT id, fixTime, latitude, attributes FROM positions WHERE deviceId < 3 ORDER BY id")
+                .executeQuery(Position.class));
+        Assert.assertEquals(10, positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            Position position = positions.get(i);
+            Assert.assertEquals(i + 1, position.getId());
+            Assert.assertEquals(0, position.getDeviceId());
+            Assert.assertEquals(i * 1000, position.getFixTime().getTime());
+            Assert.assertEquals(i, position.getLatitude(), 0.0);
+            Assert.assertEquals(i, position.getInteger("index"));
+        }
+
+        Position position = QueryBuilder.create(dataSource, "SELECT deviceId, valid FROM positions WHERE id = :id")
+                .setLong("id", 2)
+                .executeQuerySingle(Position.class);
+        Assert.assertEquals(2, position.getDeviceId());
+        Assert.assertTrue(position.getValid());
+        Assert.assertNull(position.getFixTime());
+    }
+
+    @Test
+    public void testSetObject() throws Exception {
+        String query = "INSERT INTO positions (deviceId, fixTime, latitude, valid, protocol, attributes) "
+                + "VALUES (:deviceId, :fixTime, :latitude, :valid, :protocol, :attributes)";
+        for (int i = 0; i < 3; i++) {
+            Position position = new Position();
+            position.setDeviceId(3);
+            position.setTime(new Date(100000 + i));
+            position.setLatitude(i);
+            position.setValid(true);
+            position.setProtocol("binder");
+            position.set("index", i);
+            position.set("text", "value\t" + i);
+            QueryBuilder.create(dataSource, query).setObject(position).executeUpdate();
+        }
+
+        List<Position> positions = new ArrayList<>(QueryBuilder.create(dataSource,
+                "SELECT * FROM positions WHERE deviceId = :deviceId ORDER BY id")
+                .setLong("deviceId", 3)
+                .executeQuery(Position.class));
+        Assert.assertEquals(3, positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            Position position = positions.get(i);
+            Assert.assertEquals("binder", position.getProtocol());
+            Assert.assertEquals(100000 + i, position.getFixTime().getTime());
+            Assert.assertEquals(i, position.getInteger("index"));
+            Assert.assertEquals("value\t" + i, position.getString("text"));
+        }
+    }
+
+    // Imitates drivers that return only one generated key for a whole batch
+    private static <T> T truncateKeys(final T target, final Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+            private boolean keyReturned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (type.equals(ResultSet.class) && method.getName().equals("next") && keyReturned) {
+                    return false;
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException error) {
+                    throw error.getCause();
+                }
+                if (type.equals(ResultSet.class) && method.getName().equals("next")) {
+                    keyReturned = true;
+                } else if (method.getName().equals("getGeneratedKeys")) {
+                    return truncateKeys((ResultSet) result, ResultSet.class);
+                } else if (result instanceof PreparedStatement) {
+                    return truncateKeys((PreparedStatement) result, PreparedStatement.class);
+                } else if (result instanceof Connection) {
+                    return truncateKeys((Connection) result, Connection.class);
+                }
+                return result;
+            }
+        }));
+    }
+
+    @Test
+    public void testBatchWithoutKeys() throws Exception {
+        String query = "INSERT INTO positions (deviceId, latitude) VALUES (:deviceId, :latitude)";
+        String select = "SELECT * FROM positions WHERE deviceId = :deviceId";
+
+        QueryBuilder builder = QueryBuilder.create(truncateKeys(dataSource, DataSource.class), query, true);
+        for (int i = 0; i < 3; i++) {
+            builder.setLong("deviceId", 4).setDouble("latitude", i).addBatch();
+        }
+        Assert.assertEquals(0, builder.executeBatch().length);
+        Assert.assertTrue(QueryBuilder.create(dataSource, select).setLong("deviceId", 4)
+                .executeQuery(Position.class).isEmpty());
+
+        builder = QueryBuilder.create(dataSource, query, true);
+        for (int i = 0; i < 3; i++) {
+            builder.setLong("deviceId", 4).setDouble("latitude", i).addBatch();
+        }
+        Assert.assertEquals(3, builder.executeBatch().length);
+        Assert.assertEquals(3, QueryBuilder.create(dataSource, select).setLong("deviceId", 4)
+                .executeQuery(Position.class).size());
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.traccar.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class ResolvedAttributesTest {
+
+    @Test
+    public void testValue() {
+        ResolvedAttributes.Value value = new ResolvedAttributes.Value("42");
+        Assert.assertEquals(42, value.getInteger());
+        Assert.assertEquals(42L, value.getLong());
+        Assert.assertEquals(42.0, value.getDouble(), 0);
+        Assert.assertFalse(value.getBoolean());
+
+        value = new ResolvedAttributes.Value("12.5");
+        Assert.assertEquals(12.5, value.getDouble(), 0);
+        Assert.assertEquals("12.5", value.getString());
+
+        Assert.assertTrue(new ResolvedAttributes.Value("true").getBoolean());
+        Assert.assertTrue(ResolvedAttributes.Value.NULL.isNull());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalidNumber() {
+        new ResolvedAttributes.Value("fast").getDouble();
+    }
+
+    @Test
+    public void testInvalidate() {
+        ResolvedAttributes attributes = new ResolvedAttributes();
+        Map<String, ResolvedAttributes.Value> values = attributes.getValues(1, false);
+        values.put("speedLimit", new ResolvedAttributes.Value("80"));
+        Assert.assertSame(values, attributes.getValues(1, false));
+        Assert.assertTrue(attributes.getValues(1, true).isEmpty());
+
+        attributes.invalidate(1);
+        Assert.assertTrue(attributes.getValues(1, false).isEmpty());
+
+        attributes.getValues(2, false).put("speedLimit", ResolvedAttributes.Value.NULL);
+        attributes.invalidateAll();
+        Assert.assertTrue(attributes.getValues(2, false).isEmpty());
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.traccar.geocoder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GeocoderCacheTest {
+
+    private static class TestGeocoder implements Geocoder {
+
+        private final List<ReverseGeocoderCallback> requests = new ArrayList<>();
+
+        @Override
+        public void getAddress(
+                AddressFormat format, double latitude, double longitude, ReverseGeocoderCallback callback) {
+            requests.add(callback);
+        }
+
+    }
+
+    private static class TestCallback implements Geocoder.ReverseGeocoderCallback {
+
+        private String address;
+        private Throwable error;
+
+        @Override
+        public void onSuccess(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            error = e;
+        }
+
+    }
+
+    @Test
+    public void testCache() {
+
+        TestGeocoder geocoder = new TestGeocoder();
+        GeocoderCache cache = new GeocoderCache(geocoder, 100, 4);
+
+        TestCallback first = new TestCallback();
+        cache.getAddress(null, 10.00001, 20.00001, first);
+        Assert.assertEquals(1, geocoder.requests.size());
+        geocoder.requests.get(0).onSuccess("address");
+        Assert.assertEquals("address", first.address);
+
+        TestCallback second = new TestCallback();
+        cache.getAddress(null, 10.00002, 20.00002, second);
+        Assert.assertEquals(1, geocoder.requests.size());
+        Assert.assertEquals("address", second.address);
+
+        cache.getAddress(null, 10.001, 20.001, new TestCallback());
+        Assert.assertEquals(2, geocoder.requests.size());
+
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testKey() {
+
+        GeocoderCache cache = new GeocoderCache(new TestGeocoder(), 100, 2);
+
+        Assert.assertEquals(cache.getKey(10.001, -20.001), cache.getKey(10.004, -20.004));
+        Assert.assertNotEquals(cache.getKey(10.0, 20.0), cache.getKey(20.0, 10.0));
+        Assert.assertNotEquals(cache.getKey(-90.0, 180.0), cache.getKey(-89.99, -180.0));
+    }
+
+    @Test
+    public void testCoalescing() {
+
+        TestGeocoder geocoder = new TestGeocoder();
+        GeocoderCache cache = new GeocoderCache(geocoder, 100, 4);
+
+        TestCallback first = new TestCallback();
+        TestCallback second = new TestCallback();
+        cache.getAddress(null, 10.0, 20.0, first);
+        cache.getAddress(null, 10.0, 20.0, second);
+        Assert.assertEquals(1, geocoder.requests.size());
+        Assert.assertEquals(1, cache.getCoalesced());
+
+        geocoder.requests.get(0).onSuccess("address");
+        Assert.assertEquals("address", first.address);
+        Assert.assertEquals("address", second.address);
+    }
+
+    @Test
+    public void testFailure() {
+
+        TestGeocoder geocoder = new TestGeocoder();
+        GeocoderCache cache = new GeocoderCache(geocoder, 100, 4);
+
+        TestCallback first = new TestCallback();
+        TestCallback second = new TestCallback();
+        cache.getAddress(null, 10.0, 20.0, first);
+        cache.getAddress(null, 10.0, 20.0, second);
+
+        Throwable error = new RuntimeException();
+        geocoder.requests.get(0).onFailure(error);
+        Assert.assertSame(error, first.error);
+        Assert.assertSame(error, second.error);
+
+        cache.getAddress(null, 10.0, 20.0, new TestCallback());
+        Assert.assertEquals(2, geocoder.requests.size());
+    }
+
+    @Test
+    public void testEviction() {
+
+        TestGeocoder geocoder = new TestGeocoder();
+        GeocoderCache cache = new GeocoderCache(geocoder, 16, 4);
+
+        for (int i = 0; i < 100; i++) {
+            cache.getAddress(null, 10.0, 20.0 + i, new TestCallback());
+            geocoder.requests.get(i).onSuccess("address" + i);
+        }
+
+        cache.getAddress(null, 10.0, 20.0, new TestCallback());
+        Assert.assertEquals(0, cache.getHits());
+
+        cache.getAddress(null, 10.0, 119.0, new TestCallback());
+        Assert.assertEquals(1, cache.getHits());
+    }
+
+}
@@ -29,7 +29,7 @@ public class GeocoderTest {
     }
 
     public void testGoogle() throws InterruptedException {
-        Geocoder geocoder = new GoogleGeocoder(null, null, 0);
+        Geocoder geocoder = new GoogleGeocoder(null, null);
 
         geocoder.getAddress(new AddressFormat(), 31.776797, 35.211489, new Geocoder.ReverseGeocoderCallback() {
             @Override
@@ -45,7 +45,7 @@ public class GeocoderTest {
     }
 
     public void testNominatim() throws InterruptedException {
-        Geocoder geocoder = new NominatimGeocoder(null, null, null, 0);
+        Geocoder geocoder = new NominatimGeocoder(null, null, null);
 
         geocoder.getAddress(new AddressFormat(), 40.7337807, -73.9974401, new Geocoder.ReverseGeocoderCallback() {
             @Override
@@ -78,7 +78,7 @@ public class GeocoderTest {
 
     public void testOpenCage() throws InterruptedException {
         Geocoder geocoder = new OpenCageGeocoder(
-                "http://api.opencagedata.com/geocode/v1", "SECRET", 0);
+                "http://api.opencagedata.com/geocode/v1", "SECRET");
 
         geocoder.getAddress(new AddressFormat(), 34.116302, -118.051519, new Geocoder.ReverseGeocoderCallback() {
             @Override
@@ -94,7 +94,7 @@ public class GeocoderTest {
     }
 
     public void testGeocodeFarm() throws InterruptedException {
-        Geocoder geocoder = new GeocodeFarmGeocoder(null, null, 0);
+        Geocoder geocoder = new GeocodeFarmGeocoder(null, null);
 
         geocoder.getAddress(new AddressFormat(), 34.116302, -118.051519, new Geocoder.ReverseGeocoderCallback() {
             @Override
@@ -0,0 +1,80 @@
+package org.traccar.geofence;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class GeofenceIndexTest {
+
+    private static final int GEOFENCES = 10000;
+    private static final int POINTS = 100000;
+
+    private static Set<Long> toSet(long[] values) {
+        Set<Long> result = new HashSet<>();
+        for (long value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    @Test
+    public void testFind() throws Exception {
+        Random random = new Random(1);
+        long[] ids = new long[GEOFENCES];
+        GeofenceGeometry[] geometries = new GeofenceGeometry[GEOFENCES];
+        for (int i = 0; i < GEOFENCES; i++) {
+            ids[i] = i + 1;
+            double latitude = 40 + random.nextDouble() * 10;
+            double longitude = 10 + random.nextDouble() * 10;
+            if (i % 2 == 0) {
+                geometries[i] = new GeofenceCircle(latitude, longitude, 500 + random.nextInt(5000));
+            } else {
+                double size = 0.01 + random.nextDouble() * 0.1;
+                geometries[i] = new GeofencePolygon("POLYGON ((" + latitude + " " + longitude + ", "
+                        + (latitude + size) + " " + longitude + ", "
+                        + (latitude + size) + " " + (longitude + size) + ", "
+                        + latitude + " " + (longitude + size) + "))");
+            }
+        }
+        GeofenceIndex index = new GeofenceIndex(ids, geometries);
+        Assert.assertEquals(GEOFENCES, index.size());
+
+        long candidates = 0;
+        for (int i = 0; i < POINTS; i++) {
+            double latitude = 40 + random.nextDouble() * 10;
+            double longitude = 10 + random.nextDouble() * 10;
+            long[] result = index.find(latitude, longitude);
+            candidates += result.length;
+
+            if (i % 100 == 0) {
+                Set<Long> found = toSet(result);
+                for (int j = 0; j < GEOFENCES; j++) {
+                    if (geometries[j].containsPoint(latitude, longitude)) {
+                        Assert.assertTrue(found.contains(ids[j]));
+                    }
+                    Assert.assertEquals(geometries[j].boundsContain(latitude, longitude), found.contains(ids[j]));
+                }
+            }
+        }
+        Assert.assertTrue(candidates < (long) POINTS * GEOFENCES / 100);
+    }
+
+    @Test
+    public void testAntimeridian() throws Exception {
+        GeofenceGeometry polygon = new GeofencePolygon(
+                "POLYGON ((66.9494 179.838, 66.9508 -179.8496, 66.8406 -180.0014))");
+        GeofenceGeometry circle = new GeofenceCircle(10, -179.99, 5000);
+        GeofenceIndex index = new GeofenceIndex(new long[] {1, 2}, new GeofenceGeometry[] {polygon, circle});
+
+        Assert.assertEquals(toSet(new long[] {1}), toSet(index.find(66.9015, -180.0096)));
+        Assert.assertEquals(toSet(new long[] {1}), toSet(index.find(66.9015, 179.991)));
+        Assert.assertEquals(toSet(new long[] {2}), toSet(index.find(10, 179.98)));
+        Assert.assertTrue(circle.containsPoint(10, 179.98));
+        Assert.assertEquals(0, index.find(0, 0).length);
+        Assert.assertEquals(0, new GeofenceIndex(new long[0], new GeofenceGeometry[0]).find(0, 0).length);
+    }
+
+}
@@ -47,4 +47,18 @@ public class GeofencePolygonTest {
 
     }
 
+    @Test
+    public void testParseWhitespace() throws ParseException {
+        GeofenceGeometry geofenceGeometry = new GeofencePolygon();
+        geofenceGeometry.fromWkt("POLYGON((55.75474  37.61823,55.75513 37.61888 ,  55.7535 37.6222, 55.75315 37.62165 ))");
+        Assert.assertEquals(
+                "POLYGON ((55.75474 37.61823, 55.75513 37.61888, 55.7535 37.6222, 55.75315 37.62165))",
+                geofenceGeometry.toWkt());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParseInvalidNumber() throws ParseException {
+        new GeofencePolygon().fromWkt("POLYGON ((55.75474 37.61823, 55.75513 abc, 55.7535 37.6222))");
+    }
+
 }
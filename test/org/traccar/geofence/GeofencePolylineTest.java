@@ -4,6 +4,9 @@ import java.text.ParseException;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.traccar.helper.DistanceCalculator;
+
+import java.util.Random;
 
 public class GeofencePolylineTest {
 
@@ -42,4 +45,83 @@ public class GeofencePolylineTest {
         Assert.assertTrue(!geofenceGeometry.containsPoint(66.96, 180.0));
         Assert.assertTrue(!geofenceGeometry.containsPoint(66.9509, -179.83));
     }
+
+    // Point on great circle arc between two points
+    private static double[] interpolate(
+            double latitude1, double longitude1, double latitude2, double longitude2, double fraction) {
+        double[] a = toVector(latitude1, longitude1);
+        double[] b = toVector(latitude2, longitude2);
+        double angle = Math.acos(Math.max(-1, Math.min(1, a[0] * b[0] + a[1] * b[1] + a[2] * b[2])));
+        if (angle < 1e-12) {
+            return new double[] {latitude1, longitude1};
+        }
+        double k1 = Math.sin((1 - fraction) * angle) / Math.sin(angle);
+        double k2 = Math.sin(fraction * angle) / Math.sin(angle);
+        double x = k1 * a[0] + k2 * b[0];
+        double y = k1 * a[1] + k2 * b[1];
+        double z = k1 * a[2] + k2 * b[2];
+        return new double[] {Math.toDegrees(Math.atan2(z, Math.hypot(x, y))), Math.toDegrees(Math.atan2(y, x))};
+    }
+
+    private static double[] toVector(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        return new double[] {Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    // Destination point given bearing and distance
+    private static double[] move(double latitude, double longitude, double bearing, double distance) {
+        double phi = Math.toRadians(latitude);
+        double delta = distance / GeofenceGeometry.EARTH_RADIUS;
+        double resultPhi = Math.asin(Math.sin(phi) * Math.cos(delta)
+                + Math.cos(phi) * Math.sin(delta) * Math.cos(bearing));
+        double resultLambda = Math.toRadians(longitude) + Math.atan2(
+                Math.sin(bearing) * Math.sin(delta) * Math.cos(phi),
+                Math.cos(delta) - Math.sin(phi) * Math.sin(resultPhi));
+        double resultLongitude = Math.toDegrees(resultLambda);
+        resultLongitude -= resultLongitude > 180 ? 360 : resultLongitude < -180 ? -360 : 0;
+        return new double[] {Math.toDegrees(resultPhi), resultLongitude};
+    }
+
+    @Test
+    public void testSegmentPruning() throws ParseException {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            // Long segments at high latitudes bulge away from their bounding box the most
+            double latitude = -80 + random.nextDouble() * 160;
+            double longitude = -180 + random.nextDouble() * 360;
+            double step = i % 2 == 0 ? 0.01 : 20;
+            int count = 2 + random.nextInt(5);
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            StringBuilder wkt = new StringBuilder("LINESTRING (");
+            for (int j = 0; j < count; j++) {
+                latitudes[j] = Math.max(-89, Math.min(89, latitude + (random.nextDouble() - 0.5) * step));
+                longitudes[j] = longitude + (random.nextDouble() - 0.5) * step;
+                longitudes[j] -= longitudes[j] > 180 ? 360 : longitudes[j] < -180 ? -360 : 0;
+                wkt.append(j > 0 ? ", " : "").append(latitudes[j]).append(" ").append(longitudes[j]);
+            }
+            double distance = 10 + random.nextDouble() * (i % 2 == 0 ? 500 : 50000);
+            GeofencePolyline polyline = new GeofencePolyline(wkt.append(")").toString(), distance);
+
+            for (int j = 0; j < 100; j++) {
+                int segment = random.nextInt(count - 1);
+                double[] point = interpolate(latitudes[segment], longitudes[segment],
+                        latitudes[segment + 1], longitudes[segment + 1], random.nextDouble());
+                point = move(point[0], point[1], random.nextDouble() * 2 * Math.PI,
+                        random.nextDouble() * 1.2 * distance);
+                double pointLatitude = point[0];
+                double pointLongitude = point[1];
+
+                boolean expected = false;
+                for (int k = 1; k < count && !expected; k++) {
+                    expected = DistanceCalculator.distanceToLine(pointLatitude, pointLongitude,
+                            latitudes[k - 1], longitudes[k - 1], latitudes[k], longitudes[k]) <= distance;
+                }
+                Assert.assertEquals(wkt + " " + pointLatitude + " " + pointLongitude,
+                        expected, polyline.containsPoint(pointLatitude, pointLongitude));
+            }
+        }
+    }
+
 }
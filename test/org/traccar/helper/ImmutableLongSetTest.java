@@ -0,0 +1,39 @@
+package org.traccar.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class ImmutableLongSetTest {
+
+    @Test
+    public void testSet() {
+        ImmutableLongSet set = ImmutableLongSet.of(new long[] {5, 1, 3, 5, 1}, 5);
+        Assert.assertEquals(3, set.size());
+        Assert.assertTrue(set.contains(3));
+        Assert.assertTrue(set.contains((Object) 5L));
+        Assert.assertFalse(set.contains(4));
+        Assert.assertFalse(set.contains((Object) 3));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(1L, 3L, 5L)), set);
+        Assert.assertSame(ImmutableLongSet.EMPTY, ImmutableLongSet.of(new HashSet<Long>()));
+    }
+
+    @Test
+    public void testWithWithout() {
+        ImmutableLongSet set = ImmutableLongSet.of(Arrays.asList(2L, 4L));
+        Assert.assertSame(set, set.with(4));
+        Assert.assertSame(set, set.without(3));
+        Assert.assertArrayEquals(new long[] {1, 2, 3, 4, 5}, set.with(1).with(3).with(5).toLongArray());
+        Assert.assertArrayEquals(new long[] {4}, set.without(2).toLongArray());
+        Assert.assertSame(ImmutableLongSet.EMPTY, set.without(2).without(4));
+        Assert.assertEquals(2, set.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        ImmutableLongSet.of(Arrays.asList(1L, 2L)).add(3L);
+    }
+
+}
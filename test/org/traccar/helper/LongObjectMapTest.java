@@ -0,0 +1,47 @@
+package org.traccar.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongObjectMapTest {
+
+    @Test
+    public void testBasic() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Assert.assertNull(map.put(0, "zero"));
+        Assert.assertNull(map.put(123456789012345L, "imei"));
+        Assert.assertEquals("zero", map.get(0));
+        Assert.assertEquals("imei", map.get(123456789012345L));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals("imei", map.put(123456789012345L, "other"));
+        Assert.assertEquals("other", map.remove(123456789012345L));
+        Assert.assertFalse(map.containsKey(123456789012345L));
+        Assert.assertEquals(1, map.size());
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testRandom() {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000) * 1024L;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Assert.assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2000 * 1024L; key += 1024) {
+            Assert.assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+}
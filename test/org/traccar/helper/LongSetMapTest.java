@@ -0,0 +1,60 @@
+package org.traccar.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class LongSetMapTest {
+
+    private static final int KEYS = 50000;
+    private static final int VALUES = 8;
+
+    @Test
+    public void testMap() {
+        LongSetMap map = new LongSetMap();
+        Assert.assertTrue(map.add(1, 10));
+        Assert.assertFalse(map.add(1, 10));
+        Assert.assertTrue(map.add(1, 0));
+        Assert.assertTrue(map.contains(1, 0));
+        Assert.assertFalse(map.contains(2, 0));
+        Assert.assertTrue(map.get(2).isEmpty());
+
+        LongSetMap copy = new LongSetMap(map);
+        copy.put(1, new HashSet<Long>());
+        Assert.assertEquals(2, map.get(1).size());
+        Assert.assertTrue(copy.get(1).isEmpty());
+
+        Assert.assertTrue(map.remove(1, 10));
+        Assert.assertTrue(map.remove(1, 0));
+        Assert.assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testFootprint() {
+
+        Map<Long, Set<Long>> boxed = new HashMap<>();
+        LongSetMap primitive = new LongSetMap();
+        for (long key = 1; key <= KEYS; key++) {
+            Set<Long> values = new HashSet<>();
+            for (long value = 0; value < VALUES; value++) {
+                values.add(100000 + key * VALUES + value);
+                primitive.add(key, 100000 + key * VALUES + value);
+            }
+            boxed.put(key, values);
+        }
+
+        Assert.assertEquals(boxed.size(), primitive.size());
+        Assert.assertEquals(boxed.get((long) KEYS), primitive.get(KEYS));
+
+        // Compacted sets hold exactly their values, key table stays below four slots per key
+        primitive.compact();
+        long capacity = primitive.capacity();
+        Assert.assertTrue("capacity " + capacity, capacity >= (long) KEYS * VALUES + KEYS);
+        Assert.assertTrue("capacity " + capacity, capacity < (long) KEYS * VALUES + 4 * KEYS);
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.traccar.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class LongSetTest {
+
+    @Test
+    public void testRandom() {
+        Random random = new Random(1);
+        for (int range : new int[] {10, 40, 5000}) {
+            LongSet set = new LongSet();
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < 20000; i++) {
+                long value = random.nextInt(range) - range / 4;
+                if (random.nextInt(3) == 0) {
+                    Assert.assertEquals(expected.remove(value), set.remove(value));
+                } else {
+                    Assert.assertEquals(expected.add(value), set.add(value));
+                }
+                if (i % 1000 == 0) {
+                    set.compact();
+                }
+                Assert.assertEquals(expected.size(), set.size());
+            }
+            Assert.assertEquals(expected, set);
+            Assert.assertEquals(expected, new HashSet<>(set));
+            for (long value = -range; value < range; value++) {
+                Assert.assertEquals(expected.contains(value), set.contains(value));
+            }
+            long[] array = set.toLongArray();
+            long[] sorted = array.clone();
+            Arrays.sort(sorted);
+            Assert.assertArrayEquals(sorted, array);
+        }
+    }
+
+    @Test
+    public void testCompact() {
+        LongSet set = new LongSet();
+        for (long i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        for (long i = 10; i < 100; i++) {
+            set.remove(i);
+        }
+        set.compact();
+        Assert.assertArrayEquals(new long[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, set.toLongArray());
+        Assert.assertEquals(ImmutableLongSet.of(set), set);
+        Assert.assertTrue(new LongSet(set).add(10));
+        Assert.assertEquals(10, set.size());
+    }
+
+}
@@ -2,6 +2,7 @@ package org.traccar.processing;
 
 import java.util.Date;
 
+import org.apache.commons.jexl2.JexlException;
 import org.junit.Assert;
 import org.junit.Test;
 import org.traccar.model.Attribute;
@@ -61,4 +62,13 @@ public class ComputedAttributesTest {
         
     }
 
+    @Test(expected = JexlException.class)
+    public void testUndefinedVariable() {
+        Position position = new Position();
+        position.set("adc1", 128);
+        Attribute attribute = new Attribute();
+        attribute.setExpression("adc1 + adc2");
+        new ComputedAttributesHandler().computeAttribute(attribute, position);
+    }
+
 }